@@ -9,10 +9,13 @@ import org.lwjgl.glfw.GLFW;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.bookwormpi.clientsidetesting.client.combat.CombatHudFeature;
+import org.bookwormpi.clientsidetesting.client.config.ModConfig;
 import org.bookwormpi.clientsidetesting.client.features.BlockSearchFeature;
 import org.bookwormpi.clientsidetesting.client.features.BlockSearchCommand;
 import org.bookwormpi.clientsidetesting.client.ui.MainConfigScreen;
 import org.bookwormpi.clientsidetesting.client.debug.DebugCommands;
+import org.bookwormpi.clientsidetesting.client.search.MatchKernel;
+import org.bookwormpi.clientsidetesting.client.utils.BackgroundExecutor;
 import org.bookwormpi.clientsidetesting.client.utils.CompatibilityChecker;
 
 public class ClientSideTestingClient implements ClientModInitializer {
@@ -68,6 +71,11 @@ public class ClientSideTestingClient implements ClientModInitializer {
             }
         });
         
+        // Size the background threads before any feature submits work
+        ModConfig config = ModConfig.getInstance();
+        BackgroundExecutor.configure(config.backgroundThreads, config.backgroundQueueDepth);
+        MatchKernel.setEnabled(config.vectorScan);
+        
         // Register features
         CombatHudFeature.register();
         BlockSearchFeature.register();
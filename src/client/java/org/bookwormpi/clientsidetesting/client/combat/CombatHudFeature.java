@@ -21,6 +21,7 @@ import net.minecraft.util.math.Box;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import org.bookwormpi.clientsidetesting.client.ClientSideTestingClient;
+import org.bookwormpi.clientsidetesting.client.render.OverlayCulling;
 import org.bookwormpi.clientsidetesting.client.targeting.TargetingSystem;
 
 import java.util.ArrayList;
@@ -166,12 +167,14 @@ public class CombatHudFeature {
         Vec3d cameraPos = context.camera().getPos();
         VertexConsumerProvider.Immediate vertexConsumers = client.getBufferBuilders().getEntityVertexConsumers();
 
+        Frustum frustum = context.frustum();
+
         // Render squares around all targetable entities
-        renderEntitySquares(matrices, vertexConsumers, cameraPos);
+        renderEntitySquares(matrices, vertexConsumers, cameraPos, frustum);
 
         // Draw aim prediction circle if we have a valid target
         if (targetingSystem.isTargetValid(targetingSystem.getCurrentTarget())) {
-            renderAimAssistCircle(matrices, vertexConsumers, cameraPos, heldItem);
+            renderAimAssistCircle(matrices, vertexConsumers, cameraPos, frustum, heldItem);
         }
 
         vertexConsumers.draw(); // Important: draw after all rendering is done
@@ -241,10 +244,10 @@ public class CombatHudFeature {
     }
 
     /**
-     * Renders a small square around all targetable entities
+     * Renders a small square around all targetable entities that are on screen
      */
     private static void renderEntitySquares(MatrixStack matrices, VertexConsumerProvider vertexConsumers,
-                                                  Vec3d cameraPos) {
+                                                  Vec3d cameraPos, Frustum frustum) {
         List<LivingEntity> entities = targetingSystem.getEligibleMobsInRange();
         for (LivingEntity entity : entities) {
             Vec3d entityPos = entity.getPos();
@@ -264,9 +267,18 @@ public class CombatHudFeature {
             // Scale size based on distance
             float scale = calculateDistanceScale(distance);
             float squareSize = BASE_SQUARE_SIZE * scale;
+            float half = squareSize / 2;
+            if (!OverlayCulling.isVisible(frustum, x + cameraPos.x - half, y + cameraPos.y - half, z + cameraPos.z - half,
+                    x + cameraPos.x + half, y + cameraPos.y + half, z + cameraPos.z + half)) {
+                continue;
+            }
 
-            // Draw a square always facing the player
-            drawSquare(matrices, vertexConsumers, x, y, z, squareSize, r, g, b, a);
+            if (OverlayCulling.isFar(distance * distance)) {
+                drawPoint(matrices, vertexConsumers, x, y, z, squareSize, r, g, b, a);
+            } else {
+                // Draw a square always facing the player
+                drawSquare(matrices, vertexConsumers, x, y, z, squareSize, r, g, b, a);
+            }
         }
     }
 
@@ -321,11 +333,32 @@ public class CombatHudFeature {
         matrices.pop();
     }
 
+    /**
+     * Far level of detail: a single short camera-facing mark instead of a full outline
+     */
+    private static void drawPoint(MatrixStack matrices, VertexConsumerProvider vertexConsumers,
+                                  double x, double y, double z, float size, float r, float g, float b, float a) {
+        matrices.push();
+        matrices.translate(x, y, z);
+        matrices.multiply(MinecraftClient.getInstance().gameRenderer.getCamera().getRotation());
+
+        VertexConsumer lines = vertexConsumers.getBuffer(RenderLayer.getLines());
+        float half = size / 2;
+        lines.vertex(matrices.peek().getPositionMatrix(), 0, -half, 0)
+            .color(r, g, b, a)
+            .normal(0.0f, 1.0f, 0.0f);
+        lines.vertex(matrices.peek().getPositionMatrix(), 0, half, 0)
+            .color(r, g, b, a)
+            .normal(0.0f, 1.0f, 0.0f);
+
+        matrices.pop();
+    }
+
     /**
      * Renders the aim assist circle at the predicted position
      */
     private static void renderAimAssistCircle(MatrixStack matrices, VertexConsumerProvider vertexConsumers,
-                                             Vec3d cameraPos, ItemStack weapon) {
+                                             Vec3d cameraPos, Frustum frustum, ItemStack weapon) {
         // Use ideal aim prediction for moving targets
         List<Vec3d> dummyPath = new ArrayList<>();
         Vec3d aimPos = targetingSystem.calculateIdealAimPosition(targetingSystem.getCurrentTarget(), weapon, dummyPath);
@@ -342,7 +375,15 @@ public class CombatHudFeature {
         float green = 1.0f;
         float blue = aimLockEnabled ? 1.0f : 0.0f;
         float alpha = 0.8f;
-        drawCircle(matrices, vertexConsumers, x, y, z, circleRadius, red, green, blue, alpha);
+        if (!OverlayCulling.isVisible(frustum, aimPos.x - circleRadius, aimPos.y - circleRadius, aimPos.z - circleRadius,
+                aimPos.x + circleRadius, aimPos.y + circleRadius, aimPos.z + circleRadius)) {
+            return;
+        }
+        if (OverlayCulling.isFar(distance * distance)) {
+            drawPoint(matrices, vertexConsumers, x, y, z, circleRadius * 2, red, green, blue, alpha);
+        } else {
+            drawCircle(matrices, vertexConsumers, x, y, z, circleRadius, red, green, blue, alpha);
+        }
     }
 
     /**
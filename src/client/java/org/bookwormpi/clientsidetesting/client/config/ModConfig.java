@@ -35,6 +35,17 @@ public class ModConfig {
     public int maxRenderedBlocks = 256;
     public int scanIntervalTicks = 5;
     public int searchDistance = 8; // chunks
+    public boolean budgetedScanning = false; // scan on the render thread instead of in the background
+    public int scanBudgetMicros = 2000; // per frame, budgeted scanning only
+    public int scanCpuPercent = 10; // share of one core scanning new chunks adapts its cadence and radius to
+    public int hudNearestCount = 1; // nearest hits listed per search target
+    public int searchCacheBudgetMb = 16; // memory for cached per-section scan results
+    public boolean mergedHighlights = false; // merged full-block surfaces instead of small cubes
+    public boolean showVeins = false; // one marker per connected vein instead of every block
+    public boolean showHeatmap = false; // minimap of hits per chunk under the block search HUD
+    public int backgroundThreads = 0; // worker threads running scans and other background work, 0 = one less than the number of cores
+    public int backgroundQueueDepth = 64; // queued background jobs before new ones are rejected
+    public boolean vectorScan = true; // SIMD scan kernel, only used when the JVM provides jdk.incubator.vector
     
     // Combat Settings
     public boolean aimLockEnabled = false;
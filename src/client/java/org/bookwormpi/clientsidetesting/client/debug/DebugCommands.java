@@ -4,9 +4,22 @@ import com.mojang.brigadier.Command;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.WorldChunk;
 import org.bookwormpi.clientsidetesting.client.config.ModConfig;
+import org.bookwormpi.clientsidetesting.client.features.BlockSearchFeature;
+import org.bookwormpi.clientsidetesting.client.search.ChunkScanner;
+import org.bookwormpi.clientsidetesting.client.search.DensityGrid;
+import org.bookwormpi.clientsidetesting.client.search.MatchKernel;
+import org.bookwormpi.clientsidetesting.client.search.ScanScheduler;
+import org.bookwormpi.clientsidetesting.client.search.SearchTarget;
+import org.bookwormpi.clientsidetesting.client.search.StateLookup;
+import org.bookwormpi.clientsidetesting.client.search.VeinClusters;
+import org.bookwormpi.clientsidetesting.client.search.IncrementalScanner;
+import org.bookwormpi.clientsidetesting.client.utils.BackgroundExecutor;
 import org.bookwormpi.clientsidetesting.client.utils.BlockSearchCache;
 import org.bookwormpi.clientsidetesting.client.utils.CompatibilityChecker;
 import org.bookwormpi.clientsidetesting.client.utils.PerformanceMonitor;
@@ -39,18 +52,131 @@ public class DebugCommands {
                         .executes(ctx -> {
                             ctx.getSource().sendFeedback(Text.literal("=== Performance Metrics ===").formatted(Formatting.YELLOW));
                             ctx.getSource().sendFeedback(Text.literal("Block scans: " + PerformanceMonitor.getCounter("block_scans")));
+                            ctx.getSource().sendFeedback(Text.literal("Scan generation: " + BlockSearchFeature.getScanGeneration()
+                                + (BlockSearchFeature.isScanning() ? " (running)" : "") + ", cancelled: " + PerformanceMonitor.getCounter("scans_cancelled")));
+                            ctx.getSource().sendFeedback(Text.literal("Results: snapshot " + BlockSearchFeature.getResults().generation()
+                                + ", " + BlockSearchFeature.getResults().totalHits() + " blocks"));
                             ctx.getSource().sendFeedback(Text.literal("Cache hits: " + PerformanceMonitor.getCounter("cache_hits")));
-                            ctx.getSource().sendFeedback(Text.literal("Cache size: " + BlockSearchCache.getCacheSize()));
+                            ctx.getSource().sendFeedback(Text.literal("Cache misses: " + PerformanceMonitor.getCounter("cache_misses")));
+                            ctx.getSource().sendFeedback(Text.literal("Cache size: " + BlockSearchCache.getCacheSize()
+                                + " entries, " + BlockSearchCache.getUsedBytes() / 1024 + "/" + BlockSearchCache.getBudgetBytes() / 1024 + " KiB"));
                             
                             double avgScanTime = PerformanceMonitor.getAverageDuration("block_scan");
                             if (avgScanTime > 0) {
                                 ctx.getSource().sendFeedback(Text.literal(String.format("Avg scan time: %.2fms", avgScanTime)));
                             }
+                            ScanScheduler scheduler = BlockSearchFeature.getScheduler();
+                            ctx.getSource().sendFeedback(Text.literal(String.format("Scheduler: every %d ticks, new chunks within %d chunks",
+                                scheduler.getIntervalTicks(), scheduler.getRadius(BlockSearchFeature.getEffectiveScanDistance()))));
+                            ctx.getSource().sendFeedback(Text.literal(String.format("Scan load: %.1f%% of a core (budget %d%%), frame %.1fms (target %d FPS), speed %.2f blocks/tick",
+                                scheduler.getLoadPercent(), scheduler.getCpuBudgetPercent(), scheduler.getFrameMillis(), scheduler.getTargetFps(), scheduler.getSpeed())));
+                            
+                            ctx.getSource().sendFeedback(Text.literal("Highlight quads: " + BlockSearchFeature.getDrawnHighlightQuads() + " drawn of " + BlockSearchFeature.getHighlightFaceCount()
+                                + (BlockSearchFeature.isMergedHighlights() ? " (merged)" : " (cubes)") + ", mesh builds: " + PerformanceMonitor.getCounter("highlight_mesh_builds")));
+                            
+                            int veinCount = 0;
+                            int largestVein = 0;
+                            for (java.util.List<VeinClusters.Vein> veins : BlockSearchFeature.getVeins()) {
+                                veinCount += veins.size();
+                                if (!veins.isEmpty()) {
+                                    largestVein = Math.max(largestVein, veins.get(0).size()); // Largest first
+                                }
+                            }
+                            ctx.getSource().sendFeedback(Text.literal("Veins: " + veinCount + " (largest " + largestVein + " blocks)"));
+                            
+                            if (BlockSearchFeature.isBudgetedScanning()) {
+                                ctx.getSource().sendFeedback(Text.literal("Scan mode: budgeted (" + BlockSearchFeature.getScanBudgetMicros() + "µs per frame)"));
+                                IncrementalScanner incremental = BlockSearchFeature.getIncrementalScanner();
+                                if (incremental != null && !incremental.isIdle()) {
+                                    ctx.getSource().sendFeedback(Text.literal("Scan progress: " + incremental.getChunksDone() + "/" + incremental.getChunksTotal()
+                                        + " chunks (" + incremental.describeCursor() + ")"));
+                                } else {
+                                    ctx.getSource().sendFeedback(Text.literal("Scan progress: idle"));
+                                }
+                                double avgSlice = PerformanceMonitor.getAverageDuration("incremental_scan");
+                                if (avgSlice > 0) {
+                                    ctx.getSource().sendFeedback(Text.literal(String.format("Avg frame slice: %.3fms", avgSlice)));
+                                }
+                            } else {
+                                ctx.getSource().sendFeedback(Text.literal("Scan mode: background"));
+                            }
                             
                             PerformanceMonitor.logMetrics();
                             return Command.SINGLE_SUCCESS;
                         })
                     )
+                    .then(ClientCommandManager.literal("executor")
+                        .executes(ctx -> {
+                            ctx.getSource().sendFeedback(Text.literal("=== Background Executor ===").formatted(Formatting.YELLOW));
+                            ctx.getSource().sendFeedback(Text.literal("Threads: " + BackgroundExecutor.getActiveCount() + "/" + BackgroundExecutor.getThreadCount() + " busy"));
+                            ctx.getSource().sendFeedback(Text.literal("Queue depth: " + BackgroundExecutor.getQueueDepth() + " (peak " + BackgroundExecutor.getPeakQueueDepth()
+                                + ", max " + BackgroundExecutor.getMaxQueueDepth() + "), rejected: " + PerformanceMonitor.getCounter("executor_rejected")));
+                            for (BackgroundExecutor.Priority priority : BackgroundExecutor.Priority.values()) {
+                                String metric = BackgroundExecutor.waitMetric(priority);
+                                ctx.getSource().sendFeedback(Text.literal(String.format("Avg wait %s: %.2fms (%d tasks)",
+                                    priority.name().toLowerCase(), PerformanceMonitor.getAverageDuration(metric), PerformanceMonitor.getCounter(metric + "_count"))));
+                            }
+                            ctx.getSource().sendFeedback(Text.literal(String.format("Avg run time: %.2fms", PerformanceMonitor.getAverageDuration("executor_run"))));
+                            return Command.SINGLE_SUCCESS;
+                        })
+                    )
+                    .then(ClientCommandManager.literal("density")
+                        .executes(ctx -> {
+                            DensityGrid density = BlockSearchFeature.getDensity();
+                            var player = MinecraftClient.getInstance().player;
+                            if (player == null) return Command.SINGLE_SUCCESS;
+                            int chunkX = player.getChunkPos().x;
+                            int chunkZ = player.getChunkPos().z;
+                            ctx.getSource().sendFeedback(Text.literal("=== Density at chunk " + chunkX + ", " + chunkZ + " ===").formatted(Formatting.YELLOW));
+                            if (!density.contains(chunkX, chunkZ)) {
+                                ctx.getSource().sendFeedback(Text.literal("Not scanned yet"));
+                                return Command.SINGLE_SUCCESS;
+                            }
+                            java.util.List<SearchTarget> targets = BlockSearchFeature.getTargets();
+                            for (int t = 0; t < density.getTargetCount() && t < targets.size(); t++) {
+                                ctx.getSource().sendFeedback(Text.literal(targets.get(t).query().getDisplayName() + ": " + density.getCount(chunkX, chunkZ, t)));
+                            }
+                            // Highest section first, empty ones skipped
+                            for (int s = density.getSectionCount() - 1; s >= 0; s--) {
+                                int count = density.getSectionCount(chunkX, chunkZ, s);
+                                if (count > 0) {
+                                    int bottom = density.getBottomY() + s * 16;
+                                    ctx.getSource().sendFeedback(Text.literal("  y " + bottom + ".." + (bottom + 15) + ": " + count).formatted(Formatting.GRAY));
+                                }
+                            }
+                            ctx.getSource().sendFeedback(Text.literal("Most hits in a chunk within 8 chunks: " + density.getMaxTotal(chunkX, chunkZ, 8)));
+                            return Command.SINGLE_SUCCESS;
+                        })
+                    )
+                    .then(ClientCommandManager.literal("vector")
+                        .executes(ctx -> {
+                            ctx.getSource().sendFeedback(Text.literal("=== Scan Kernel ===").formatted(Formatting.YELLOW));
+                            if (!MatchKernel.isAvailable()) {
+                                ctx.getSource().sendFeedback(Text.literal("Vector kernel: unavailable, start the game with --add-modules jdk.incubator.vector")
+                                    .formatted(Formatting.RED));
+                            } else {
+                                ctx.getSource().sendFeedback(Text.literal("Vector kernel: " + (MatchKernel.isEnabled() ? "enabled" : "disabled")
+                                    + ", " + MatchKernel.getLanes() + " lanes"));
+                            }
+                            ctx.getSource().sendFeedback(Text.literal("Verifying and benchmarking..."));
+                            // Takes a moment, keep it off the client thread
+                            BackgroundExecutor.run(BackgroundExecutor.Priority.USER, () -> {
+                                String mismatch = MatchKernel.isAvailable() ? MatchKernel.verify(512, 42) : null;
+                                double[] sparse = MatchKernel.benchmark(256, 20, 0.01, 42);
+                                double[] dense = MatchKernel.benchmark(256, 20, 0.25, 42);
+                                MinecraftClient.getInstance().execute(() -> {
+                                    if (MatchKernel.isAvailable()) {
+                                        ctx.getSource().sendFeedback(mismatch == null
+                                            ? Text.literal("Verify: vector matches scalar on 512 sections").formatted(Formatting.GREEN)
+                                            : Text.literal("Verify failed: " + mismatch).formatted(Formatting.RED));
+                                    }
+                                    ctx.getSource().sendFeedback(Text.literal(describeBenchmark("1% hits", sparse)));
+                                    ctx.getSource().sendFeedback(Text.literal(describeBenchmark("25% hits", dense)));
+                                });
+                            });
+                            return Command.SINGLE_SUCCESS;
+                        })
+                    )
                     .then(ClientCommandManager.literal("compatibility")
                         .executes(ctx -> {
                             CompatibilityChecker.CompatibilityResult result = CompatibilityChecker.checkCompatibility();
@@ -73,8 +199,35 @@ public class DebugCommands {
                         .then(ClientCommandManager.literal("stats")
                             .executes(ctx -> {
                                 ctx.getSource().sendFeedback(Text.literal("Cache size: " + BlockSearchCache.getCacheSize()));
-                                BlockSearchCache.cleanExpiredEntries();
-                                ctx.getSource().sendFeedback(Text.literal("Expired entries cleaned"));
+                                ctx.getSource().sendFeedback(Text.literal("Memory: " + BlockSearchCache.getUsedBytes() / 1024 + "/" + BlockSearchCache.getBudgetBytes() / 1024 + " KiB"));
+                                ctx.getSource().sendFeedback(Text.literal("Hits: " + PerformanceMonitor.getCounter("cache_hits")
+                                    + ", misses: " + PerformanceMonitor.getCounter("cache_misses")
+                                    + ", evictions: " + PerformanceMonitor.getCounter("cache_evictions")));
+                                return Command.SINGLE_SUCCESS;
+                            })
+                        )
+                        .then(ClientCommandManager.literal("verify")
+                            .executes(ctx -> {
+                                MinecraftClient client = MinecraftClient.getInstance();
+                                if (client.world == null || client.player == null || BlockSearchFeature.getTargets().isEmpty()) {
+                                    ctx.getSource().sendFeedback(Text.literal("Verify needs a world and at least one search target").formatted(Formatting.RED));
+                                    return 0;
+                                }
+                                StateLookup lookup = new StateLookup(BlockSearchFeature.getTargets(), BlockSearchFeature.getBand(), BlockSearchFeature.isExposedOnly());
+                                ChunkPos center = client.player.getChunkPos();
+                                String mismatch = null;
+                                int checked = 0;
+                                for (int dx = -2; dx <= 2 && mismatch == null; dx++) {
+                                    for (int dz = -2; dz <= 2 && mismatch == null; dz++) {
+                                        WorldChunk chunk = client.world.getChunkManager().getWorldChunk(center.x + dx, center.z + dz, false);
+                                        if (chunk == null) continue;
+                                        mismatch = ChunkScanner.verifyCache(chunk, lookup);
+                                        checked++;
+                                    }
+                                }
+                                ctx.getSource().sendFeedback(mismatch == null
+                                    ? Text.literal("Verify: cache matches fresh scans in " + checked + " chunks, also with each target dropped").formatted(Formatting.GREEN)
+                                    : Text.literal("Verify failed: " + mismatch).formatted(Formatting.RED));
                                 return Command.SINGLE_SUCCESS;
                             })
                         )
@@ -130,9 +283,96 @@ public class DebugCommands {
                                             config.blockSearchEnabled = Boolean.parseBoolean(value);
                                             changed = true;
                                         }
+                                        case "scanmode" -> {
+                                            if (!value.equalsIgnoreCase("budgeted") && !value.equalsIgnoreCase("background")) {
+                                                ctx.getSource().sendError(Text.literal("Invalid scan mode: " + value + " (use budgeted or background)"));
+                                                return Command.SINGLE_SUCCESS;
+                                            }
+                                            config.budgetedScanning = value.equalsIgnoreCase("budgeted");
+                                            BlockSearchFeature.setBudgetedScanning(config.budgetedScanning);
+                                            changed = true;
+                                        }
+                                        case "highlights" -> {
+                                            if (!value.equalsIgnoreCase("merged") && !value.equalsIgnoreCase("cubes")) {
+                                                ctx.getSource().sendError(Text.literal("Invalid highlight mode: " + value + " (use merged or cubes)"));
+                                                return Command.SINGLE_SUCCESS;
+                                            }
+                                            config.mergedHighlights = value.equalsIgnoreCase("merged");
+                                            BlockSearchFeature.setMergedHighlights(config.mergedHighlights);
+                                            changed = true;
+                                        }
+                                        case "veins" -> {
+                                            config.showVeins = Boolean.parseBoolean(value);
+                                            BlockSearchFeature.setShowVeins(config.showVeins);
+                                            changed = true;
+                                        }
+                                        case "cachebudget" -> {
+                                            try {
+                                                config.searchCacheBudgetMb = Math.max(0, Integer.parseInt(value));
+                                                BlockSearchCache.setBudgetBytes(config.searchCacheBudgetMb * 1024L * 1024L);
+                                                changed = true;
+                                            } catch (NumberFormatException e) {
+                                                ctx.getSource().sendError(Text.literal("Invalid number: " + value));
+                                                return Command.SINGLE_SUCCESS;
+                                            }
+                                        }
+                                        case "hudnearest" -> {
+                                            try {
+                                                BlockSearchFeature.setHudNearestCount(Integer.parseInt(value));
+                                                config.hudNearestCount = BlockSearchFeature.getHudNearestCount();
+                                                changed = true;
+                                            } catch (NumberFormatException e) {
+                                                ctx.getSource().sendError(Text.literal("Invalid number: " + value));
+                                                return Command.SINGLE_SUCCESS;
+                                            }
+                                        }
+                                        case "scanbudget" -> {
+                                            try {
+                                                config.scanBudgetMicros = Integer.parseInt(value);
+                                                BlockSearchFeature.setScanBudgetMicros(config.scanBudgetMicros);
+                                                changed = true;
+                                            } catch (NumberFormatException e) {
+                                                ctx.getSource().sendError(Text.literal("Invalid number: " + value));
+                                                return Command.SINGLE_SUCCESS;
+                                            }
+                                        }
+                                        case "threads", "queuedepth" -> {
+                                            try {
+                                                if (key.equalsIgnoreCase("threads")) {
+                                                    config.backgroundThreads = Integer.parseInt(value);
+                                                } else {
+                                                    config.backgroundQueueDepth = Integer.parseInt(value);
+                                                }
+                                                BackgroundExecutor.configure(config.backgroundThreads, config.backgroundQueueDepth);
+                                                changed = true;
+                                            } catch (NumberFormatException e) {
+                                                ctx.getSource().sendError(Text.literal("Invalid number: " + value));
+                                                return Command.SINGLE_SUCCESS;
+                                            }
+                                        }
+                                        case "scancpu" -> {
+                                            try {
+                                                config.scanCpuPercent = Math.clamp(Integer.parseInt(value), 1, 100);
+                                                BlockSearchFeature.setScanCpuPercent(config.scanCpuPercent);
+                                                changed = true;
+                                            } catch (NumberFormatException e) {
+                                                ctx.getSource().sendError(Text.literal("Invalid number: " + value));
+                                                return Command.SINGLE_SUCCESS;
+                                            }
+                                        }
+                                        case "heatmap" -> {
+                                            config.showHeatmap = Boolean.parseBoolean(value);
+                                            BlockSearchFeature.setShowHeatmap(config.showHeatmap);
+                                            changed = true;
+                                        }
+                                        case "vectorscan" -> {
+                                            config.vectorScan = Boolean.parseBoolean(value);
+                                            MatchKernel.setEnabled(config.vectorScan);
+                                            changed = true;
+                                        }
                                         default -> {
                                             ctx.getSource().sendError(Text.literal("Unknown config key: " + key));
-                                            ctx.getSource().sendFeedback(Text.literal("Available keys: maxblocks, scaninterval, blocksearch"));
+                                            ctx.getSource().sendFeedback(Text.literal("Available keys: maxblocks, scaninterval, blocksearch, scanmode, scanbudget, scancpu, hudnearest, highlights, veins, cachebudget, threads, queuedepth, vectorscan, heatmap"));
                                             return Command.SINGLE_SUCCESS;
                                         }
                                     }
@@ -151,4 +391,12 @@ public class DebugCommands {
             );
         });
     }
+
+    private static String describeBenchmark(String label, double[] nanosPerSection) {
+        if (Double.isNaN(nanosPerSection[1])) {
+            return String.format("Scalar (%s): %.1fµs per section", label, nanosPerSection[0] / 1000.0);
+        }
+        return String.format("Scalar vs vector (%s): %.1fµs vs %.1fµs per section, %.2fx",
+            label, nanosPerSection[0] / 1000.0, nanosPerSection[1] / 1000.0, nanosPerSection[0] / nanosPerSection[1]);
+    }
 }
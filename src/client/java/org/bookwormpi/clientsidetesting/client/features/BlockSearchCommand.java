@@ -1,39 +1,204 @@
 package org.bookwormpi.clientsidetesting.client.features;
 
 import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
-import net.minecraft.block.Block;
-import net.minecraft.registry.Registries;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.minecraft.text.Text;
-import net.minecraft.util.Identifier;
+import org.bookwormpi.clientsidetesting.client.search.BlockQuery;
+import org.bookwormpi.clientsidetesting.client.search.ScanBand;
+import org.bookwormpi.clientsidetesting.client.search.SearchTarget;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class BlockSearchCommand {
     public static void register() {
         ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> {
             dispatcher.register(ClientCommandManager.literal("blocksearch")
-                .then(ClientCommandManager.argument("block_id", StringArgumentType.word())
-                    .executes(ctx -> {
-                        String blockId = StringArgumentType.getString(ctx, "block_id");
-                        String[] parts = blockId.split(":");
-                        if (parts.length != 2) {
-                            ctx.getSource().sendError(Text.literal("Invalid block ID format. Use 'namespace:block_name'."));
+                // /blocksearch add <query...> - add targets to the current search
+                .then(ClientCommandManager.literal("add")
+                    .then(ClientCommandManager.argument("block_ids", StringArgumentType.greedyString())
+                        .executes(ctx -> {
+                            List<SearchTarget> parsed = parseTargets(ctx, BlockSearchFeature.getTargets().size());
+                            if (parsed == null) return Command.SINGLE_SUCCESS;
+                            List<SearchTarget> updated = new ArrayList<>(BlockSearchFeature.getTargets());
+                            for (SearchTarget target : parsed) {
+                                boolean present = updated.stream()
+                                    .anyMatch(existing -> existing.query().getSource().equals(target.query().getSource()));
+                                if (!present) {
+                                    updated.add(target);
+                                }
+                            }
+                            BlockSearchFeature.setTargets(updated);
+                            ctx.getSource().sendFeedback(Text.literal("Searching for " + updated.size() + " block(s)"));
+                            return Command.SINGLE_SUCCESS;
+                        })
+                    )
+                )
+                // /blocksearch remove <query>
+                .then(ClientCommandManager.literal("remove")
+                    .then(ClientCommandManager.argument("block_id", StringArgumentType.greedyString())
+                        .executes(ctx -> {
+                            String query = StringArgumentType.getString(ctx, "block_id").trim();
+                            // Plain ids are stored with their namespace, so normalize before comparing
+                            try {
+                                query = BlockQuery.parse(query).getSource();
+                            } catch (CommandSyntaxException e) {
+                                ctx.getSource().sendError(Text.literal(e.getMessage()));
+                                return Command.SINGLE_SUCCESS;
+                            }
+                            if (BlockSearchFeature.getTargets().size() == 1) {
+                                ctx.getSource().sendError(Text.literal("Cannot remove the last search target."));
+                                return Command.SINGLE_SUCCESS;
+                            }
+                            if (BlockSearchFeature.removeTarget(query)) {
+                                ctx.getSource().sendFeedback(Text.literal("No longer searching for: " + query));
+                            } else {
+                                ctx.getSource().sendError(Text.literal("Not searching for: " + query));
+                            }
+                            return Command.SINGLE_SUCCESS;
+                        })
+                    )
+                )
+                // /blocksearch y <min> <max> | all - limit the search to a range of heights
+                .then(ClientCommandManager.literal("y")
+                    .then(ClientCommandManager.literal("all")
+                        .executes(ctx -> {
+                            ScanBand band = BlockSearchFeature.getBand();
+                            BlockSearchFeature.setBand(new ScanBand(Integer.MIN_VALUE, Integer.MAX_VALUE, band.surfaceDepth()));
+                            ctx.getSource().sendFeedback(Text.literal("Searching " + BlockSearchFeature.getBand().describe()));
+                            return Command.SINGLE_SUCCESS;
+                        })
+                    )
+                    .then(ClientCommandManager.argument("min", IntegerArgumentType.integer())
+                        .then(ClientCommandManager.argument("max", IntegerArgumentType.integer())
+                            .executes(ctx -> {
+                                int min = IntegerArgumentType.getInteger(ctx, "min");
+                                int max = IntegerArgumentType.getInteger(ctx, "max");
+                                if (min > max) {
+                                    ctx.getSource().sendError(Text.literal("Minimum Y must not be above maximum Y."));
+                                    return Command.SINGLE_SUCCESS;
+                                }
+                                BlockSearchFeature.setBand(new ScanBand(min, max, BlockSearchFeature.getBand().surfaceDepth()));
+                                ctx.getSource().sendFeedback(Text.literal("Searching " + BlockSearchFeature.getBand().describe()));
+                                return Command.SINGLE_SUCCESS;
+                            })
+                        )
+                    )
+                )
+                // /blocksearch surface <depth> | off - only search the top blocks of each column, 0 for everything up to the surface
+                .then(ClientCommandManager.literal("surface")
+                    .then(ClientCommandManager.literal("off")
+                        .executes(ctx -> {
+                            ScanBand band = BlockSearchFeature.getBand();
+                            BlockSearchFeature.setBand(new ScanBand(band.minY(), band.maxY(), ScanBand.NO_SURFACE));
+                            ctx.getSource().sendFeedback(Text.literal("Searching " + BlockSearchFeature.getBand().describe()));
                             return Command.SINGLE_SUCCESS;
-                        }
-                        Block block = Registries.BLOCK.get(Identifier.of(parts[0], parts[1]));
-                        if (block == null || block.getDefaultState().isAir()) {
-                            ctx.getSource().sendError(Text.literal("Block not found: " + blockId));
+                        })
+                    )
+                    .then(ClientCommandManager.argument("depth", IntegerArgumentType.integer(0, 4064))
+                        .executes(ctx -> {
+                            ScanBand band = BlockSearchFeature.getBand();
+                            BlockSearchFeature.setBand(new ScanBand(band.minY(), band.maxY(), IntegerArgumentType.getInteger(ctx, "depth")));
+                            ctx.getSource().sendFeedback(Text.literal("Searching " + BlockSearchFeature.getBand().describe()));
                             return Command.SINGLE_SUCCESS;
-                        }
-                        BlockSearchFeature.blockToSearch = block;
-                        BlockSearchFeature.enabled = true;
-                        BlockSearchFeature.lastPlayerChunk = null;
-                        ctx.getSource().sendFeedback(Text.literal("Searching for block: " + blockId));
+                        })
+                    )
+                )
+                // /blocksearch exposed <true|false> - only find blocks touching air or a fluid
+                .then(ClientCommandManager.literal("exposed")
+                    .then(ClientCommandManager.argument("enabled", BoolArgumentType.bool())
+                        .executes(ctx -> {
+                            boolean exposed = BoolArgumentType.getBool(ctx, "enabled");
+                            BlockSearchFeature.setExposedOnly(exposed);
+                            ctx.getSource().sendFeedback(Text.literal(exposed ? "Only finding exposed blocks" : "Finding all blocks"));
+                            return Command.SINGLE_SUCCESS;
+                        })
+                    )
+                )
+                // /blocksearch <query...> - replace the search with one or more targets
+                .then(ClientCommandManager.argument("block_ids", StringArgumentType.greedyString())
+                    .executes(ctx -> {
+                        List<SearchTarget> parsed = parseTargets(ctx, 0);
+                        if (parsed == null) return Command.SINGLE_SUCCESS;
+                        BlockSearchFeature.setTargets(parsed);
+                        ctx.getSource().sendFeedback(Text.literal("Searching for block(s): " + StringArgumentType.getString(ctx, "block_ids")));
                         return Command.SINGLE_SUCCESS;
                     })
                 )
             );
         });
     }
+
+    /**
+     * Parse a space separated list of block queries, each optionally followed by @RRGGBB for its
+     * highlight color. A query is a block id, a block state such as minecraft:wheat[age=7],
+     * or a tag such as #minecraft:logs.
+     *
+     * @param firstIndex target index of the first parsed query, used to pick default colors
+     * @return the parsed targets, or null after reporting an error
+     */
+    private static List<SearchTarget> parseTargets(CommandContext<FabricClientCommandSource> ctx, int firstIndex) {
+        String input = StringArgumentType.getString(ctx, "block_ids").trim();
+        List<SearchTarget> parsed = new ArrayList<>();
+        for (String token : splitQueries(input)) {
+            String query = token;
+            Integer color = null;
+            int at = token.lastIndexOf('@');
+            if (at > token.lastIndexOf(']')) {
+                query = token.substring(0, at);
+                try {
+                    color = Integer.parseInt(token.substring(at + 1), 16) & 0xFFFFFF;
+                } catch (NumberFormatException e) {
+                    ctx.getSource().sendError(Text.literal("Invalid color '" + token.substring(at + 1) + "'. Use RRGGBB hex."));
+                    return null;
+                }
+            }
+            BlockQuery blockQuery;
+            try {
+                blockQuery = BlockQuery.parse(query);
+            } catch (CommandSyntaxException e) {
+                ctx.getSource().sendError(Text.literal("Invalid block query '" + query + "': " + e.getMessage()));
+                return null;
+            }
+            if (blockQuery.getDisplayBlock().getDefaultState().isAir() && blockQuery.isBlock(blockQuery.getDisplayBlock())) {
+                ctx.getSource().sendError(Text.literal("Block not found: " + query));
+                return null;
+            }
+            int index = firstIndex + parsed.size();
+            parsed.add(new SearchTarget(blockQuery, color != null ? color : SearchTarget.defaultColor(index)));
+        }
+        return parsed;
+    }
+
+    /**
+     * Split on whitespace, except inside [...] so property lists may contain spaces.
+     */
+    private static List<String> splitQueries(String input) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        for (char c : input.toCharArray()) {
+            if (c == '[') depth++;
+            if (c == ']') depth = Math.max(0, depth - 1);
+            if (Character.isWhitespace(c) && depth == 0) {
+                if (!current.isEmpty()) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
 }
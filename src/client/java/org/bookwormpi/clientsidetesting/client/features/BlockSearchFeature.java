@@ -6,65 +6,175 @@ import net.fabricmc.fabric.api.client.rendering.v1.HudLayerRegistrationCallback;
 import net.fabricmc.fabric.api.client.rendering.v1.IdentifiedLayer;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
-import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
-import net.fabricmc.fabric.api.event.player.UseBlockCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
+import net.minecraft.item.ItemStack;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.world.ClientWorld;
 import net.minecraft.client.render.RenderTickCounter;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+import org.bookwormpi.clientsidetesting.client.search.BlockQuery;
+import org.bookwormpi.clientsidetesting.client.search.BlockSearchIndex;
+import org.bookwormpi.clientsidetesting.client.search.ChunkScanner;
+import org.bookwormpi.clientsidetesting.client.search.DensityGrid;
+import org.bookwormpi.clientsidetesting.client.search.ExposureMask;
+import org.bookwormpi.clientsidetesting.client.search.IncrementalScanner;
+import org.bookwormpi.clientsidetesting.client.search.PositionList;
+import org.bookwormpi.clientsidetesting.client.search.PositionTree;
+import org.bookwormpi.clientsidetesting.client.search.ScanBand;
+import org.bookwormpi.clientsidetesting.client.search.ScanScheduler;
+import org.bookwormpi.clientsidetesting.client.search.ScanToken;
+import org.bookwormpi.clientsidetesting.client.search.SearchResults;
+import org.bookwormpi.clientsidetesting.client.search.SearchTarget;
+import org.bookwormpi.clientsidetesting.client.search.StateLookup;
+import org.bookwormpi.clientsidetesting.client.search.VeinClusters;
+import org.bookwormpi.clientsidetesting.client.config.ModConfig;
+import org.bookwormpi.clientsidetesting.client.render.HighlightMesh;
+import org.bookwormpi.clientsidetesting.client.render.OverlayCulling;
+import org.bookwormpi.clientsidetesting.client.utils.BlockSearchCache;
+import org.bookwormpi.clientsidetesting.client.utils.BackgroundExecutor;
+import org.bookwormpi.clientsidetesting.client.utils.PerformanceMonitor;
+import org.joml.Vector3f;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
+import java.util.Set;
 
 public class BlockSearchFeature {
+    private static final Logger LOGGER = LoggerFactory.getLogger("clientsidetesting-scan");
     
     public static boolean enabled = false;
+    // Primary (first) search target, kept for single-block callers
     public static Block blockToSearch = Blocks.DIAMOND_BLOCK;
     public static int scanDistance = -1; // -1 means use render distance by default
     public static int maxRenderedBlocks = 256;
     public static int scanIntervalTicks = 5;
-    private static final List<BlockPos> foundBlocks = new ArrayList<>();
+    // Scan on the render thread within a per-frame time budget instead of on background threads
+    public static boolean budgetedScanning = false;
+    public static int scanBudgetMicros = 2000;
+    // Number of nearest hits listed per target in the HUD
+    public static int hudNearestCount = 1;
+    public static final int MAX_HUD_NEAREST = 10;
+    // Highlight hits as merged full-block surfaces instead of separate small cubes
+    public static boolean mergedHighlights = false;
+    // Show one marker per connected vein instead of every block
+    public static boolean showVeins = false;
+    // Minimap of hit counts per chunk under the HUD rows
+    public static boolean showHeatmap = false;
+    private static final int HEATMAP_RADIUS = 8; // chunks around the player
+    private static final int HEATMAP_CELL = 4; // pixels per chunk
+    private static final PositionList hudNearest = new PositionList();
+    // All search targets and the state table compiled from them; replaced together on change
+    private static List<SearchTarget> targets = List.of(SearchTarget.of(Blocks.DIAMOND_BLOCK, SearchTarget.RAINBOW));
+    private static StateLookup lookup = null;
+    // Heights the search is limited to, part of the compiled lookup
+    private static ScanBand band = ScanBand.ALL;
+    // Only count hits touching air or a fluid, also part of the compiled lookup
+    private static boolean exposedOnly = false;
+    // Nearest hits per target as an immutable snapshot, replaced whole on every refresh
+    private static volatile SearchResults results = new SearchResults(targets, List.of(), List.of(), 0);
+    private static int resultGeneration = 0;
+    // Player position the results were queried from, and how far the player can move
+    // from it before a hit outside the results could be nearer than one inside
+    private static BlockPos resultsOrigin = null;
+    private static double resultsSlack = 0;
+    // Highlight geometry and the snapshot it was built from
+    private static HighlightMesh highlightMesh = null;
+    private static SearchResults meshResults = null;
+    private static int lastDrawnQuads = 0;
+    // Veins per target, clustered in the background from the index at this version around this chunk
+    private static List<List<VeinClusters.Vein>> foundVeins = List.of();
+    private static int veinIndexVersion = -1;
+    private static ChunkPos veinCenter = null;
+    private static boolean clusteringVeins = false;
+    private static final int[] hudVeins = new int[MAX_HUD_NEAREST];
+    // Shown while a target has no hits
+    private static final String NO_COORDS = "[§c~§r,§a~§r,§b~§r]";
+    // Cached HUD text per target and the target list it was built for
+    private static HudRow[] hudRows = new HudRow[0];
+    private static List<SearchTarget> hudTargets = null;
+    private static final BlockSearchIndex index = new BlockSearchIndex();
+    // Lookup the index currently holds hits for
+    private static StateLookup indexedLookup = null;
+    // Set when the index changed and the rendered list should be rebuilt
+    private static boolean resultsDirty = false;
+    // Loaded chunks that still need scanning, including those the scheduler deferred (client thread only)
+    private static final Set<Long> pendingChunks = new LinkedHashSet<>();
+    // Chunks with a snapshot being scanned, with the number of scans holding one,
+    // and those of them changed since (client thread only)
+    private static final Map<Long, Integer> snapshottedChunks = new HashMap<>();
+    private static final Set<Long> staleChunks = new HashSet<>();
+    // Cursor-based scanner used in budgeted mode, recreated when the lookup changes
+    private static IncrementalScanner incremental = null;
     public static ChunkPos lastPlayerChunk = null;
     private static MinecraftClient lastClient = null;
-    private static final int MAX_SCAN_DISTANCE = 16;
-    private static final AtomicBoolean scanning = new AtomicBoolean(false);
+    // A streaming scan snapshots whole rings until it has at least this many chunks per step
+    private static final int RING_BATCH_CHUNKS = 64;
+    // Generation counter and token of the running full scan, null when none is running (client thread only)
+    private static int scanGeneration = 0;
+    private static ScanToken activeScan = null;
     private static long lastScanTick = 0;
+    // Picks the batch cadence and the radius new chunks are scanned within from measured cost
+    private static final ScanScheduler scheduler = new ScanScheduler();
+    private static int ticksSinceBatch = 0;
     private static long lastScanRequestTime = 0;
     private static final long MIN_SCAN_INTERVAL_MS = 500; // Minimum 500ms between scans
     private static final Identifier BLOCK_SEARCH_LAYER = Identifier.of("clientsidetesting", "block-search-layer");
 
     public static void register() {
+        ModConfig config = ModConfig.getInstance();
+        budgetedScanning = config.budgetedScanning;
+        scanBudgetMicros = Math.max(50, config.scanBudgetMicros);
+        scheduler.setCpuBudgetPercent(config.scanCpuPercent);
+        hudNearestCount = Math.clamp(config.hudNearestCount, 1, MAX_HUD_NEAREST);
+        mergedHighlights = config.mergedHighlights;
+        showVeins = config.showVeins;
+        showHeatmap = config.showHeatmap;
+        BlockSearchCache.setBudgetBytes(config.searchCacheBudgetMb * 1024L * 1024L);
         // Register the world render event!
         WorldRenderEvents.AFTER_ENTITIES.register(BlockSearchFeature::onWorldRender);
-        // Listen for chunk load/unload and trigger rescan
+        // Listen for chunk load/unload and keep the per-chunk index in sync
         ClientChunkEvents.CHUNK_LOAD.register((world, chunk) -> {
-            if (enabled && MinecraftClient.getInstance().player != null) {
-                requestScan(MinecraftClient.getInstance(), MinecraftClient.getInstance().player.getChunkPos());
+            BlockSearchCache.onChunkLoaded(chunk);
+            if (enabled) {
+                long key = chunk.getPos().toLong();
+                pendingChunks.add(key);
+                if (snapshottedChunks.containsKey(key)) {
+                    staleChunks.add(key); // Reloaded while a snapshot of the old data is being scanned
+                }
+                if (indexedLookup != null && indexedLookup == lookup && indexedLookup.isExposedOnly()) {
+                    updateNeighbourBorders(world, chunk.getPos());
+                }
             }
         });
         ClientChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> {
-            if (enabled && MinecraftClient.getInstance().player != null) {
-                requestScan(MinecraftClient.getInstance(), MinecraftClient.getInstance().player.getChunkPos());
+            BlockSearchCache.onChunkUnloaded(chunk);
+            pendingChunks.remove(chunk.getPos().toLong());
+            if (index.contains(chunk.getPos())) {
+                index.remove(chunk.getPos());
+                resultsDirty = true;
             }
         });
-        PlayerBlockBreakEvents.AFTER.register((world, player, pos, state, blockEntity) -> {
-            if (enabled && world.isClient) {
-                scanning.set(true);
-            }
-        });
-        UseBlockCallback.EVENT.register((player, world, hand, hitResult) -> {
-            if (enabled && world.isClient) {
-                scanning.set(true);
-            }
-            return net.minecraft.util.ActionResult.PASS;
-        });
+        // Newly loaded chunks are scanned in batches, at the cadence the scheduler picks
+        ClientTickEvents.END_CLIENT_TICK.register(BlockSearchFeature::scanPendingChunks);
         
         // Use the new HUD Layer Registration API (replaces deprecated HudRenderCallback)
         HudLayerRegistrationCallback.EVENT.register(layeredDrawer -> 
@@ -73,11 +183,10 @@ public class BlockSearchFeature {
     }
 
     private static void renderHud(DrawContext drawContext, RenderTickCounter tickCounter) {
-            if (!enabled || blockToSearch == null) return;
+            if (!enabled || targets.isEmpty()) return;
             MinecraftClient client = MinecraftClient.getInstance();
             if (client.player == null) return;
             var textRenderer = client.textRenderer;
-            var stack = new net.minecraft.item.ItemStack(blockToSearch);
             int screenWidth = client.getWindow().getScaledWidth();
             // Calculate offset for status effect icons
             int effectCount = client.player.getStatusEffects().size();
@@ -92,37 +201,216 @@ public class BlockSearchFeature {
                 y = 4;
             }
             int iconSize = 16;
-            String blockName = stack.getName().getString();
-            String coords;
-            if (foundBlocks.isEmpty()) {
-                coords = "[§c~§r,§a~§r,§b~§r]";
-            } else {
-                BlockPos closest = foundBlocks.get(0);
-                double minDist = client.player.getPos().squaredDistanceTo(closest.getX() + 0.5, closest.getY() + 0.5, closest.getZ() + 0.5);
-                for (BlockPos pos : foundBlocks) {
-                    double dist = client.player.getPos().squaredDistanceTo(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
-                    if (dist < minDist) {
-                        minDist = dist;
-                        closest = pos;
-                    }
+            SearchResults snapshot = results;
+            HudRow[] rows = getHudRows(snapshot.targets(), textRenderer);
+            int playerX = client.player.getBlockX();
+            int playerY = client.player.getBlockY();
+            int playerZ = client.player.getBlockZ();
+            List<List<VeinClusters.Vein>> veins = showVeins ? snapshot.veins() : List.of();
+            // One row per target: icon (left), name (middle), coords (right), all right-justified
+            for (int t = 0; t < rows.length; t++) {
+                HudRow row = rows[t];
+                if (showVeins) {
+                    y = renderVeinRows(drawContext, client, row, t < veins.size() ? veins.get(t) : List.of(), y);
+                    continue;
+                }
+                // Nearest hits come from the tree, so this does not grow with the number of hits
+                snapshot.hitsFor(t).nearest(playerX, playerY, playerZ, hudNearestCount, hudNearest);
+                if (hudNearest.isEmpty()) {
+                    row.setEmpty(0);
+                } else {
+                    row.setPosition(0, hudNearest.get(0), textRenderer);
                 }
-                coords = String.format("[§c%d§r,§a%d§r,§b%d§r]", closest.getX(), closest.getY(), closest.getZ());
+                int iconX = screenWidth - row.lineWidths[0] - row.nameWidth - iconSize - 22; // 8px margin + 6px + 8px
+                int iconY = y;
+                int nameX = iconX + iconSize + 6;
+                int nameY = y + 4;
+                int coordsX = nameX + row.nameWidth + 8;
+                int coordsY = nameY;
+                drawContext.drawItem(row.stack, iconX, iconY);
+                drawContext.drawTextWithShadow(textRenderer, row.name, nameX, nameY, row.nameColor);
+                drawContext.drawTextWithShadow(textRenderer, row.lines[0], coordsX, coordsY, 0xFFFFFF);
+                y += iconSize + 2;
+                // Further hits are listed under the nearest one, aligned to the right edge
+                for (int i = 1; i < hudNearest.size(); i++) {
+                    row.setPosition(i, hudNearest.get(i), textRenderer);
+                    drawContext.drawTextWithShadow(textRenderer, row.lines[i], screenWidth - row.lineWidths[i] - 8, y, 0xAAAAAA);
+                    y += textRenderer.fontHeight + 1;
+                }
+            }
+            if (showHeatmap) {
+                renderHeatmap(drawContext, client, y + 4);
+            }
+    }
+
+    /**
+     * Minimap of hit counts per chunk around the player, north up. Chunks with
+     * more hits are drawn hotter; chunks not scanned yet are left out.
+     */
+    private static void renderHeatmap(DrawContext drawContext, MinecraftClient client, int y) {
+        DensityGrid density = index.getDensity();
+        int centerX = client.player.getChunkPos().x;
+        int centerZ = client.player.getChunkPos().z;
+        int side = (HEATMAP_RADIUS * 2 + 1) * HEATMAP_CELL;
+        int left = client.getWindow().getScaledWidth() - side - 8;
+        drawContext.fill(left - 1, y - 1, left + side + 1, y + side + 1, 0x80000000);
+        // Log scale, so one rich chunk does not wash out the rest
+        double scale = Math.log1p(density.getMaxTotal(centerX, centerZ, HEATMAP_RADIUS));
+        for (int dz = -HEATMAP_RADIUS; dz <= HEATMAP_RADIUS; dz++) {
+            for (int dx = -HEATMAP_RADIUS; dx <= HEATMAP_RADIUS; dx++) {
+                if (!density.contains(centerX + dx, centerZ + dz)) continue;
+                int total = density.getTotal(centerX + dx, centerZ + dz);
+                int color = total == 0 ? 0x40FFFFFF : heatColor(Math.log1p(total) / scale);
+                int cellX = left + (dx + HEATMAP_RADIUS) * HEATMAP_CELL;
+                int cellY = y + (dz + HEATMAP_RADIUS) * HEATMAP_CELL;
+                drawContext.fill(cellX, cellY, cellX + HEATMAP_CELL - 1, cellY + HEATMAP_CELL - 1, color);
+            }
+        }
+        int playerX = left + HEATMAP_RADIUS * HEATMAP_CELL;
+        int playerY = y + HEATMAP_RADIUS * HEATMAP_CELL;
+        drawContext.drawBorder(playerX - 1, playerY - 1, HEATMAP_CELL + 1, HEATMAP_CELL + 1, 0xFFFFFFFF);
+    }
+
+    /**
+     * Blue for few hits through yellow to red for the most.
+     */
+    private static int heatColor(double heat) {
+        float hue = (float) (0.66 * (1.0 - heat));
+        return 0xE0000000 | (java.awt.Color.HSBtoRGB(hue, 1.0f, 1.0f) & 0xFFFFFF);
+    }
+
+    /**
+     * Vein mode HUD rows for one target: the nearest veins by centroid, with their size.
+     *
+     * @return the y position below the rows
+     */
+    private static int renderVeinRows(DrawContext drawContext, MinecraftClient client, HudRow row, List<VeinClusters.Vein> veins, int y) {
+        var textRenderer = client.textRenderer;
+        int screenWidth = client.getWindow().getScaledWidth();
+        int iconSize = 16;
+        int count = nearestVeins(veins, (float) client.player.getX(), (float) client.player.getY(), (float) client.player.getZ());
+        if (count == 0) {
+            row.setEmpty(0);
+        } else {
+            row.setVein(0, veins.get(hudVeins[0]), textRenderer);
+        }
+        int iconX = screenWidth - row.lineWidths[0] - row.nameWidth - iconSize - 22;
+        int nameX = iconX + iconSize + 6;
+        int coordsX = nameX + row.nameWidth + 8;
+        drawContext.drawItem(row.stack, iconX, y);
+        drawContext.drawTextWithShadow(textRenderer, row.name, nameX, y + 4, row.nameColor);
+        drawContext.drawTextWithShadow(textRenderer, row.lines[0], coordsX, y + 4, 0xFFFFFF);
+        y += iconSize + 2;
+        for (int i = 1; i < count; i++) {
+            row.setVein(i, veins.get(hudVeins[i]), textRenderer);
+            drawContext.drawTextWithShadow(textRenderer, row.lines[i], screenWidth - row.lineWidths[i] - 8, y, 0xAAAAAA);
+            y += textRenderer.fontHeight + 1;
+        }
+        return y;
+    }
+
+    /**
+     * HUD rows for a target list, built again only when the list is replaced.
+     */
+    private static HudRow[] getHudRows(List<SearchTarget> rowTargets, TextRenderer textRenderer) {
+        if (rowTargets != hudTargets) {
+            HudRow[] rows = new HudRow[rowTargets.size()];
+            for (int t = 0; t < rows.length; t++) {
+                rows[t] = new HudRow(rowTargets.get(t), textRenderer);
             }
-            int coordsWidth = textRenderer.getWidth(coords.replaceAll("§.", ""));
-            int nameWidth = textRenderer.getWidth(blockName);
-            int iconX = screenWidth - coordsWidth - nameWidth - iconSize - 22; // 8px margin + 6px + 8px
-            int iconY = y;
-            int nameX = iconX + iconSize + 6;
-            int nameY = y + 4;
-            int coordsX = nameX + nameWidth + 8;
-            int coordsY = nameY;
-            // Draw icon, name, and coords in order: icon (left), name (middle), coords (right), all right-justified
-            drawContext.drawItem(stack, iconX, iconY);
-            drawContext.drawTextWithShadow(textRenderer, blockName, nameX, nameY, 0xFFFFFF);
-            drawContext.drawTextWithShadow(textRenderer, coords, coordsX, coordsY, 0xFFFFFF);
-    }
-
-    public static void requestScan(MinecraftClient client, ChunkPos playerChunk, Block blockType) {
+            hudRows = rows;
+            hudTargets = rowTargets;
+        }
+        return hudRows;
+    }
+
+    /**
+     * Icon, name and coordinate lines of one target's HUD rows, with their
+     * measured widths. A line is only formatted and measured again when the
+     * position or vein it shows changes, so drawing an unchanged HUD allocates
+     * nothing. Widths are taken with the formatting codes in place, which the
+     * text renderer does not count.
+     */
+    private static final class HudRow {
+        final ItemStack stack;
+        final String name;
+        final int nameWidth;
+        final int nameColor;
+        final String[] lines = new String[MAX_HUD_NEAREST];
+        final int[] lineWidths = new int[MAX_HUD_NEAREST];
+        // What each line shows: a packed position, or a vein when the HUD lists veins
+        private final long[] linePositions = new long[MAX_HUD_NEAREST];
+        private final VeinClusters.Vein[] lineVeins = new VeinClusters.Vein[MAX_HUD_NEAREST];
+        private final int emptyWidth;
+
+        HudRow(SearchTarget target, TextRenderer textRenderer) {
+            stack = new ItemStack(target.block());
+            name = target.query().getDisplayName();
+            nameWidth = textRenderer.getWidth(name);
+            // Name is tinted with the target's highlight color
+            nameColor = target.color() == SearchTarget.RAINBOW ? 0xFFFFFF : target.color();
+            emptyWidth = textRenderer.getWidth(NO_COORDS);
+        }
+
+        void setEmpty(int line) {
+            lines[line] = NO_COORDS;
+            lineWidths[line] = emptyWidth;
+            lineVeins[line] = null;
+        }
+
+        void setPosition(int line, long pos, TextRenderer textRenderer) {
+            if (lines[line] != null && lines[line] != NO_COORDS && lineVeins[line] == null && linePositions[line] == pos) return;
+            lines[line] = "[§c" + BlockPos.unpackLongX(pos) + "§r,§a" + BlockPos.unpackLongY(pos) + "§r,§b" + BlockPos.unpackLongZ(pos) + "§r]";
+            lineWidths[line] = textRenderer.getWidth(lines[line]);
+            linePositions[line] = pos;
+            lineVeins[line] = null;
+        }
+
+        void setVein(int line, VeinClusters.Vein vein, TextRenderer textRenderer) {
+            if (vein.equals(lineVeins[line])) return;
+            lines[line] = "[§c" + (int) Math.floor(vein.centerX()) + "§r,§a" + (int) Math.floor(vein.centerY())
+                + "§r,§b" + (int) Math.floor(vein.centerZ()) + "§r] §7x" + vein.size();
+            lineWidths[line] = textRenderer.getWidth(lines[line]);
+            lineVeins[line] = vein;
+        }
+    }
+
+    /**
+     * Fill hudVeins with the indices of the veins nearest to a point, nearest first.
+     * Insertion into a list of at most hudNearestCount entries, so linear in the number of veins.
+     *
+     * @return the number of indices filled in
+     */
+    private static int nearestVeins(List<VeinClusters.Vein> veins, float x, float y, float z) {
+        int count = 0;
+        for (int v = 0; v < veins.size(); v++) {
+            float distance = veins.get(v).distanceSq(x, y, z);
+            int i = count < hudNearestCount ? count++ : count;
+            while (i > 0 && veins.get(hudVeins[i - 1]).distanceSq(x, y, z) > distance) {
+                if (i < hudNearestCount) {
+                    hudVeins[i] = hudVeins[i - 1];
+                }
+                i--;
+            }
+            if (i < hudNearestCount) {
+                hudVeins[i] = v;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Veins of the current results, one list per target, largest first.
+     */
+    public static List<List<VeinClusters.Vein>> getVeins() {
+        return results.veins();
+    }
+
+    public static void requestScan(MinecraftClient client, ChunkPos playerChunk) {
+        requestScan(client, playerChunk, BackgroundExecutor.Priority.USER);
+    }
+
+    private static void requestScan(MinecraftClient client, ChunkPos playerChunk, BackgroundExecutor.Priority priority) {
         long currentTime = System.currentTimeMillis();
         
         // Prevent scan spam - enforce minimum interval between scans
@@ -130,213 +418,749 @@ public class BlockSearchFeature {
             return;
         }
         
-        if (scanning.get()) {
+        if (activeScan != null) {
             return; // Prevent concurrent scans
         }
+        if (client.world == null) {
+            return;
+        }
         
         lastScanRequestTime = currentTime;
-        scanning.set(true);
-        CompletableFuture.runAsync(() -> {
-            if (scanning.get() && Thread.currentThread().isInterrupted()) {
-                scanning.set(false);
-                return;
+        startScan(client, playerChunk, priority);
+    }
+
+    /**
+     * Start a full scan around the player. A scan that is still running is
+     * cancelled: it stops at its next chunk and its results are never published.
+     */
+    private static void startScan(MinecraftClient client, ChunkPos playerChunk, BackgroundExecutor.Priority priority) {
+        cancelScan();
+        ScanToken token = new ScanToken(++scanGeneration);
+        activeScan = token;
+        StateLookup scanLookup = getLookup();
+        if (scanLookup != indexedLookup) {
+            // Hits for different targets are useless, start the index over
+            index.reset(scanLookup.getTargetCount());
+            indexedLookup = scanLookup;
+            foundVeins = List.of();
+        }
+        int distance = getEffectiveScanDistance(client);
+        PerformanceMonitor.incrementCounter("block_scans");
+        if (budgetedScanning) {
+            List<WorldChunk> chunks = collectLoadedChunks(client, playerChunk, distance);
+            LOGGER.debug("Scanning for {} target(s) in {} loaded chunks", scanLookup.getTargetCount(), chunks.size());
+            // The previous budgeted scan simply stops here; whatever it still had queued
+            // goes back to the pending set and is picked up once this scan is done
+            discardIncremental(true);
+            // Nearest chunks first so their hits show up in the first frames
+            chunks.sort(Comparator.comparingInt(chunk -> chunkDistanceSq(chunk.getPos(), playerChunk)));
+            enqueueIncremental(chunks, scanLookup);
+            // stepIncremental ends the scan once the queue drains
+            if (incremental.isIdle()) {
+                activeScan = null;
+            }
+            return;
+        }
+        LOGGER.debug("Streaming scan for {} target(s) out to {} chunks", scanLookup.getTargetCount(), distance);
+        scanRings(client, token, playerChunk, 0, distance, scanLookup, priority, System.nanoTime());
+    }
+
+    /**
+     * Scan rings of chunks outward from the center, a batch of rings at a time.
+     * Each batch is snapshotted on the client thread, scanned in the background and
+     * published before the next one is snapshotted, so near hits show up first and
+     * no single step stalls the client. Stops at the first ring without loaded chunks.
+     */
+    private static void scanRings(MinecraftClient client, ScanToken token, ChunkPos center, int firstRing, int lastRing,
+                                  StateLookup scanLookup, BackgroundExecutor.Priority priority, long startNanos) {
+        if (token != activeScan) return; // Superseded between batches
+        List<WorldChunk> chunks = new ArrayList<>();
+        int ring = firstRing;
+        boolean reachedEdge = false;
+        while (ring <= lastRing && chunks.size() < RING_BATCH_CHUNKS) {
+            int before = chunks.size();
+            collectRing(client, center, ring, chunks);
+            if (chunks.size() == before && ring > 0) {
+                reachedEdge = true; // Loaded chunks end here
+                break;
             }
-            List<BlockPos> results = scanBlocks(client, playerChunk, blockType);
+            ring++;
+        }
+        if (chunks.isEmpty()) {
+            activeScan = null;
+            PerformanceMonitor.recordDuration("block_scan", System.nanoTime() - startNanos);
+            return;
+        }
+        int nextRing = reachedEdge ? lastRing + 1 : ring;
+        // Snapshot on the client thread so the async scan never reads live chunk data
+        List<ChunkScanner.ChunkSnapshot> snapshots = snapshotChunks(chunks, scanLookup);
+        ChunkScanner.scanAll(snapshots, scanLookup, token, priority).thenAccept(results -> {
+            client.execute(() -> {
+                if (token != activeScan) {
+                    // Superseded by a newer generation, the results may be partial and are dropped
+                    releaseSnapshots(snapshots);
+                    return;
+                }
+                publishChunkResults(client, results, scanLookup);
+                scanRings(client, token, center, nextRing, lastRing, scanLookup, priority, startNanos);
+            });
+        }).exceptionally(e -> {
+            // Rejected because the queue is full, or failed; this batch and the rings
+            // beyond it were never scanned, so hand them to the pending batches
             client.execute(() -> {
-                foundBlocks.clear();
-                foundBlocks.addAll(results);
-                scanning.set(false);
+                releaseSnapshots(snapshots);
+                if (token != activeScan) return;
+                activeScan = null;
+                if (client.world == null) return;
+                List<WorldChunk> unscanned = new ArrayList<>();
+                for (int r = firstRing; r <= lastRing; r++) {
+                    collectRing(client, center, r, unscanned);
+                }
+                for (WorldChunk chunk : unscanned) {
+                    pendingChunks.add(chunk.getPos().toLong());
+                }
             });
+            return null;
         });
     }
 
-    // Overload for old calls
-    public static void requestScan(MinecraftClient client, ChunkPos playerChunk) {
-        requestScan(client, playerChunk, blockToSearch);
+    /**
+     * Cancel the running full scan, if any, without starting another.
+     */
+    private static void cancelScan() {
+        if (activeScan != null) {
+            activeScan.cancel();
+            activeScan = null;
+            PerformanceMonitor.incrementCounter("scans_cancelled");
+        }
     }
 
-    private static List<BlockPos> scanBlocks(MinecraftClient client, ChunkPos playerChunk, Block blockType) {
-        List<BlockPos> results = new ArrayList<>();
-        int distance = scanDistance > 0 ? Math.min(scanDistance, MAX_SCAN_DISTANCE) : (client.options != null ? Math.min(client.options.getViewDistance().getValue(), MAX_SCAN_DISTANCE) : 8);
-        BlockPos playerPos = client.player.getBlockPos();
-        
-        System.out.println("[BlockSearch] Scanning for " + blockType + " with distance " + distance + " chunks");
+    /**
+     * Start a fresh scan right away for a settings change, superseding any scan still running.
+     */
+    private static void restartScan() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.player == null || client.world == null) return;
+        lastScanRequestTime = System.currentTimeMillis();
+        startScan(client, client.player.getChunkPos(), BackgroundExecutor.Priority.USER);
+    }
 
-        // Generate chunk offsets sorted by distance from player chunk
-        List<int[]> chunkOffsets = new ArrayList<>();
-        for (int dx = -distance; dx <= distance; dx++) {
-            for (int dz = -distance; dz <= distance; dz++) {
-                chunkOffsets.add(new int[]{dx, dz});
+    private static void scanPendingChunks(MinecraftClient client) {
+        if (!enabled || client.world == null || targets.isEmpty()) {
+            // Chunks streamed in while disabled are not tracked, so drop the index entirely
+            pendingChunks.clear();
+            cancelScan();
+            discardIncremental(false);
+            if (indexedLookup != null) {
+                index.clear();
+                indexedLookup = null;
             }
+            return;
         }
-        chunkOffsets.sort((a, b) -> Integer.compare(a[0]*a[0] + a[1]*a[1], b[0]*b[0] + b[1]*b[1]));
-
-        int chunksScanned = 0;
-        int chunksLoaded = 0;
-        
-        outer:
-        for (int[] offset : chunkOffsets) {
-            int dx = offset[0];
-            int dz = offset[1];
-            ChunkPos chunkPos = new ChunkPos(playerChunk.x + dx, playerChunk.z + dz);
-            boolean loaded = client.world.getChunkManager().isChunkLoaded(chunkPos.x, chunkPos.z);
-            chunksScanned++;
-            if (!loaded) {
+        if (client.player != null) {
+            scheduler.onTick(client.player.getX(), client.player.getZ(), ChunkScanner.getScanNanos(), System.nanoTime());
+        }
+        scheduler.setFrameLimit(client.options.getMaxFps().getValue());
+        scheduler.update(scanIntervalTicks);
+        ticksSinceBatch++;
+        if (pendingChunks.isEmpty()) return;
+        if (activeScan != null || indexedLookup != getLookup()) {
+            return; // A full rescan is running or due, it will pick these chunks up
+        }
+        if (ticksSinceBatch < scheduler.getIntervalTicks()) {
+            return; // Batched together with the chunks of the next ticks
+        }
+        ticksSinceBatch = 0;
+        ChunkPos center = client.player != null ? client.player.getChunkPos() : null;
+        int radius = scheduler.getRadius(getEffectiveScanDistance(client));
+        List<WorldChunk> chunks = new ArrayList<>();
+        for (Iterator<Long> it = pendingChunks.iterator(); it.hasNext(); ) {
+            long key = it.next();
+            int x = ChunkPos.getPackedX(key);
+            int z = ChunkPos.getPackedZ(key);
+            if (!client.world.getChunkManager().isChunkLoaded(x, z)) {
+                it.remove();
                 continue;
             }
-            chunksLoaded++;
-            var chunk = client.world.getChunk(chunkPos.x, chunkPos.z);
-            var chunkSections = chunk.getSectionArray();
-            int bottomY = chunk.getBottomY();
-            // Collect all candidate block positions in this chunk
-            List<BlockPos> candidates = new ArrayList<>();
-            for (int sectionY = 0; sectionY < chunkSections.length; sectionY++) {
-                var section = chunkSections[sectionY];
-                if (section == null || section.isEmpty()) continue;
-                int yOffset = (sectionY * 16) + bottomY;
-                for (int x = 0; x < 16; x++) {
-                    for (int z = 0; z < 16; z++) {
-                        for (int y = 0; y < 16; y++) {
-                            if (section.getBlockState(x, y, z).isOf(blockType)) {
-                                BlockPos found = new BlockPos(
-                                    chunkPos.getStartX() + x,
-                                    yOffset + y,
-                                    chunkPos.getStartZ() + z
-                                );
-                                candidates.add(found);
-                            }
+            if (center != null && Math.max(Math.abs(x - center.x), Math.abs(z - center.z)) > radius) {
+                continue; // Over budget; stays pending until the radius grows back
+            }
+            chunks.add(client.world.getChunk(x, z));
+            it.remove();
+        }
+        if (chunks.isEmpty()) return;
+        StateLookup scanLookup = indexedLookup;
+        if (budgetedScanning) {
+            enqueueIncremental(chunks, scanLookup);
+            return;
+        }
+        List<ChunkScanner.ChunkSnapshot> snapshots = snapshotChunks(chunks, scanLookup);
+        ChunkScanner.scanAll(snapshots, scanLookup, null, BackgroundExecutor.Priority.NEAR_CHUNK).thenAccept(results -> {
+            client.execute(() -> publishChunkResults(client, results, scanLookup));
+        }).exceptionally(e -> {
+            // Not scanned, so try these chunks again with the next batch
+            client.execute(() -> {
+                releaseSnapshots(snapshots);
+                for (ChunkScanner.ChunkSnapshot snapshot : snapshots) {
+                    pendingChunks.add(snapshot.pos().toLong());
+                }
+            });
+            return null;
+        });
+    }
+
+    private static void publishChunkResults(MinecraftClient client, Map<ChunkPos, List<PositionList>> results, StateLookup scanLookup) {
+        for (Map.Entry<ChunkPos, List<PositionList>> entry : results.entrySet()) {
+            publishChunk(client, entry.getKey(), entry.getValue(), scanLookup);
+        }
+        if (scanLookup == indexedLookup) {
+            refreshResults(client);
+        }
+    }
+
+    /**
+     * Store the scan result of one chunk in the index.
+     *
+     * @return true if the hits were kept
+     */
+    private static boolean publishChunk(MinecraftClient client, ChunkPos chunkPos, List<PositionList> hits, StateLookup scanLookup) {
+        long key = chunkPos.toLong();
+        boolean stale = releaseSnapshot(key);
+        // Targets changed while scanning or the chunk unloaded, the hits are useless
+        if (scanLookup != indexedLookup || client.world == null
+                || !client.world.getChunkManager().isChunkLoaded(chunkPos.x, chunkPos.z)) {
+            return false;
+        }
+        index.getDensity().setHeight(client.world.getBottomY(), client.world.countVerticalSections());
+        // The client keeps chunks loaded up to a few past the view distance, and any of them may be indexed
+        index.fitDensity(Math.max(getEffectiveScanDistance(client), client.options.getViewDistance().getValue() + 3));
+        index.put(chunkPos, hits);
+        // Loading the chunk queued it, but a full scan may have got to it first
+        pendingChunks.remove(key);
+        // Blocks changed after the snapshot was taken, scan the chunk again
+        if (stale) {
+            pendingChunks.add(key);
+        }
+        return true;
+    }
+
+    /**
+     * Drop one scan's hold on a chunk snapshot.
+     *
+     * @return true if the chunk changed since the snapshot was taken
+     */
+    private static boolean releaseSnapshot(long key) {
+        Integer holders = snapshottedChunks.get(key);
+        if (holders == null || holders <= 1) {
+            snapshottedChunks.remove(key);
+            return staleChunks.remove(key);
+        }
+        // Another scan still holds a snapshot, it needs to see the stale flag too
+        snapshottedChunks.put(key, holders - 1);
+        return staleChunks.contains(key);
+    }
+
+    private static void releaseSnapshots(List<ChunkScanner.ChunkSnapshot> snapshots) {
+        for (ChunkScanner.ChunkSnapshot snapshot : snapshots) {
+            releaseSnapshot(snapshot.pos().toLong());
+        }
+    }
+
+    private static void enqueueIncremental(List<WorldChunk> chunks, StateLookup scanLookup) {
+        if (incremental == null || incremental.getLookup() != scanLookup) {
+            discardIncremental(false);
+            incremental = new IncrementalScanner(scanLookup);
+        }
+        for (WorldChunk chunk : incremental.enqueue(chunks)) {
+            snapshottedChunks.merge(chunk.getPos().toLong(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Spend up to the frame budget on the incremental scan, publishing each chunk as it completes.
+     */
+    private static void stepIncremental(MinecraftClient client) {
+        if (incremental == null || incremental.isIdle()) return;
+        StateLookup scanLookup = incremental.getLookup();
+        long start = System.nanoTime();
+        incremental.step(client.world, scanBudgetMicros * 1000L,
+                (chunkPos, hits) -> resultsDirty |= publishChunk(client, chunkPos, hits, scanLookup),
+                chunkPos -> releaseSnapshot(chunkPos.toLong()));
+        long elapsed = System.nanoTime() - start;
+        PerformanceMonitor.recordDuration("incremental_scan", elapsed);
+        scheduler.addWork(elapsed);
+        if (incremental.isIdle()) {
+            activeScan = null;
+        }
+    }
+
+    /**
+     * Stop the budgeted scanner and drop its queue.
+     *
+     * @param requeue put the dropped chunks back into the pending set
+     */
+    private static void discardIncremental(boolean requeue) {
+        if (incremental == null) return;
+        for (ChunkPos chunkPos : incremental.clear()) {
+            releaseSnapshot(chunkPos.toLong());
+            if (requeue) {
+                pendingChunks.add(chunkPos.toLong());
+            }
+        }
+        incremental = null;
+    }
+
+    private static int chunkDistanceSq(ChunkPos a, ChunkPos b) {
+        int dx = a.x - b.x;
+        int dz = a.z - b.z;
+        return dx * dx + dz * dz;
+    }
+
+    /**
+     * Patch the index for a single block change received from the server.
+     * Called on the client thread for both single-block and chunk-delta updates.
+     */
+    public static void onBlockChanged(BlockPos pos, BlockState state) {
+        if (!enabled || indexedLookup == null || indexedLookup != lookup) return;
+        long chunkKey = ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4);
+        if (snapshottedChunks.containsKey(chunkKey)) {
+            staleChunks.add(chunkKey);
+        }
+        ClientWorld world = MinecraftClient.getInstance().world;
+        if (index.update(pos, indexedTargetOf(world, pos, state))) {
+            resultsDirty = true;
+        }
+        if (indexedLookup.isExposedOnly() && world != null) {
+            // Opening or filling a cell changes whether its neighbours are exposed
+            for (Direction direction : Direction.values()) {
+                BlockPos neighbour = pos.offset(direction);
+                if (index.update(neighbour, indexedTargetOf(world, neighbour, world.getBlockState(neighbour)))) {
+                    resultsDirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-check the border blocks of indexed chunks next to a chunk that just
+     * loaded. The loaded chunk was missing when they were scanned and counted as
+     * solid, so hits on their faces toward it were left out. Exposed-only
+     * searches only; sections without a target in their palette are skipped.
+     */
+    private static void updateNeighbourBorders(ClientWorld world, ChunkPos loaded) {
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (Direction direction : Direction.Type.HORIZONTAL) {
+            int chunkX = loaded.x + direction.getOffsetX();
+            int chunkZ = loaded.z + direction.getOffsetZ();
+            if (!index.contains(new ChunkPos(chunkX, chunkZ))) continue; // Pending chunks see the new neighbour when scanned
+            long chunkKey = ChunkPos.toLong(chunkX, chunkZ);
+            if (snapshottedChunks.containsKey(chunkKey)) {
+                staleChunks.add(chunkKey);
+            }
+            WorldChunk neighbour = world.getChunk(chunkX, chunkZ);
+            // The neighbour's column of cells facing back toward the loaded chunk
+            int fixedX = direction.getOffsetX() > 0 ? 0 : 15;
+            int fixedZ = direction.getOffsetZ() > 0 ? 0 : 15;
+            ChunkSection[] sections = neighbour.getSectionArray();
+            for (int s = 0; s < sections.length; s++) {
+                ChunkSection section = sections[s];
+                if (section == null || section.isEmpty()
+                        || !section.getBlockStateContainer().hasAny(state -> indexedLookup.targetOf(state) != StateLookup.NONE)) {
+                    continue;
+                }
+                int bottomY = neighbour.getBottomY() + s * 16;
+                for (int y = 0; y < 16; y++) {
+                    for (int i = 0; i < 16; i++) {
+                        int x = direction.getOffsetX() != 0 ? fixedX : i;
+                        int z = direction.getOffsetZ() != 0 ? fixedZ : i;
+                        BlockState state = section.getBlockState(x, y, z);
+                        if (indexedLookup.targetOf(state) == StateLookup.NONE) continue;
+                        pos.set((chunkX << 4) + x, bottomY + y, (chunkZ << 4) + z);
+                        if (index.update(pos, indexedTargetOf(world, pos, state))) {
+                            resultsDirty = true;
                         }
                     }
                 }
             }
-            // Sort candidates by distance to player
-            candidates.sort((a, b) -> Double.compare(a.getSquaredDistance(playerPos), b.getSquaredDistance(playerPos)));
-            for (BlockPos found : candidates) {
-                results.add(found);
-                if (results.size() >= maxRenderedBlocks) {
-                    break outer;
+        }
+    }
+
+    /**
+     * Target a live block counts as under the indexed search. Out-of-band and,
+     * for exposed-only searches, buried blocks count as no target at all.
+     */
+    private static int indexedTargetOf(ClientWorld world, BlockPos pos, BlockState state) {
+        int target = indexedLookup.targetOf(state);
+        if (target == StateLookup.NONE || !indexedLookup.getBand().contains(world, pos)) {
+            return StateLookup.NONE;
+        }
+        if (indexedLookup.isExposedOnly() && world != null) {
+            for (Direction direction : Direction.values()) {
+                if (ExposureMask.isOpen(world.getBlockState(pos.offset(direction)))) {
+                    return target;
                 }
             }
+            return StateLookup.NONE;
+        }
+        return target;
+    }
+
+    /**
+     * Rebuild the rendered list from the index. Cheap, touches no world data.
+     */
+    private static void refreshResults(MinecraftClient client) {
+        resultsDirty = false;
+        if (client.player == null || indexedLookup == null || indexedLookup != lookup) {
+            clearResults();
+            return;
+        }
+        BlockPos origin = client.player.getBlockPos();
+        // One extra hit per target tells how close the nearest left-out hit is
+        List<PositionList> nearest = index.query(client.player.getChunkPos(), origin,
+                getEffectiveScanDistance(client), maxRenderedBlocks + 1);
+        double slack = Double.POSITIVE_INFINITY;
+        List<PositionTree> trees = new ArrayList<>(nearest.size());
+        for (PositionList hits : nearest) {
+            if (hits.size() > maxRenderedBlocks) {
+                // Moving changes every distance by at most the distance moved
+                double gap = maxRenderedBlocks > 0
+                    ? Math.sqrt(hits.getDistanceSq(maxRenderedBlocks)) - Math.sqrt(hits.getDistanceSq(maxRenderedBlocks - 1))
+                    : Double.POSITIVE_INFINITY;
+                slack = Math.min(slack, gap / 2);
+                hits.truncate(maxRenderedBlocks);
+            }
+            trees.add(PositionTree.build(hits));
+        }
+        resultsOrigin = origin;
+        resultsSlack = slack;
+        // Built aside and published with one reference swap; readers never see a partial list
+        results = new SearchResults(indexedLookup.getTargets(), trees, foundVeins, ++resultGeneration);
+        clusterVeins(client);
+    }
+
+    /**
+     * Cluster every indexed hit within the search radius into veins in the
+     * background, once the index or the player's chunk changed, and publish them
+     * with the current results. Clustering all hits rather than the rendered ones
+     * keeps veins whole where they reach past the nearest maxRenderedBlocks.
+     */
+    private static void clusterVeins(MinecraftClient client) {
+        ChunkPos center = client.player.getChunkPos();
+        if (!showVeins || clusteringVeins || (index.getVersion() == veinIndexVersion && center.equals(veinCenter))) return;
+        StateLookup veinLookup = indexedLookup;
+        // The index is only touched on the client thread, so its hits are copied out first
+        long[][] positions = index.collect(center, getEffectiveScanDistance(client));
+        veinIndexVersion = index.getVersion();
+        veinCenter = center;
+        clusteringVeins = true;
+        BackgroundExecutor.supply(BackgroundExecutor.Priority.BACKGROUND, () -> {
+            List<List<VeinClusters.Vein>> veins = new ArrayList<>(positions.length);
+            for (long[] hits : positions) {
+                veins.add(VeinClusters.cluster(hits, hits.length));
+            }
+            return veins;
+        }).whenComplete((veins, e) -> client.execute(() -> {
+            clusteringVeins = false;
+            if (e != null) {
+                veinIndexVersion = -1; // Try again on the next refresh
+                return;
+            }
+            // Targets changed while clustering, these veins belong to the old ones
+            if (veinLookup != indexedLookup) return;
+            foundVeins = veins;
+            SearchResults current = results;
+            results = new SearchResults(current.targets(), current.hits(), veins, ++resultGeneration);
+        }));
+    }
+
+    /**
+     * Whether the player moved far enough from where the results were queried
+     * that a left-out hit could now be nearer than one of the results.
+     */
+    private static boolean hasMovedPastResults(BlockPos pos) {
+        if (resultsOrigin == null) return true;
+        return Math.sqrt(pos.getSquaredDistance(resultsOrigin)) > resultsSlack;
+    }
+
+    /**
+     * Publish an empty snapshot for the current targets, so nothing stale is drawn.
+     */
+    private static void clearResults() {
+        results = new SearchResults(targets, List.of(), List.of(), ++resultGeneration);
+        resultsOrigin = null;
+    }
+
+    private static StateLookup getLookup() {
+        if (lookup == null) {
+            lookup = new StateLookup(targets, band, exposedOnly);
+        }
+        return lookup;
+    }
+
+    /**
+     * Search radius in chunks. Without an explicit distance this is the view distance;
+     * either way scans stop where loaded chunks end.
+     */
+    private static int getEffectiveScanDistance(MinecraftClient client) {
+        return scanDistance > 0 ? scanDistance : (client.options != null ? client.options.getViewDistance().getValue() : 8);
+    }
+
+    private static List<ChunkScanner.ChunkSnapshot> snapshotChunks(List<WorldChunk> chunks, StateLookup scanLookup) {
+        for (WorldChunk chunk : chunks) {
+            snapshottedChunks.merge(chunk.getPos().toLong(), 1, Integer::sum);
+        }
+        long start = System.nanoTime();
+        List<ChunkScanner.ChunkSnapshot> snapshots = ChunkScanner.snapshotAll(chunks, scanLookup);
+        scheduler.addWork(System.nanoTime() - start);
+        return snapshots;
+    }
+
+    private static List<WorldChunk> collectLoadedChunks(MinecraftClient client, ChunkPos center, int distance) {
+        List<WorldChunk> chunks = new ArrayList<>();
+        for (int ring = 0; ring <= distance; ring++) {
+            collectRing(client, center, ring, chunks);
+        }
+        return chunks;
+    }
+
+    /**
+     * Add the loaded chunks on the square ring at a chessboard distance from the center.
+     */
+    private static void collectRing(MinecraftClient client, ChunkPos center, int ring, List<WorldChunk> out) {
+        if (ring == 0) {
+            addIfLoaded(client, center.x, center.z, out);
+            return;
+        }
+        for (int d = -ring; d <= ring; d++) {
+            addIfLoaded(client, center.x + d, center.z - ring, out);
+            addIfLoaded(client, center.x + d, center.z + ring, out);
+        }
+        for (int d = -ring + 1; d < ring; d++) {
+            addIfLoaded(client, center.x - ring, center.z + d, out);
+            addIfLoaded(client, center.x + ring, center.z + d, out);
+        }
+    }
+
+    private static void addIfLoaded(MinecraftClient client, int x, int z, List<WorldChunk> out) {
+        if (client.world.getChunkManager().isChunkLoaded(x, z)) {
+            out.add(client.world.getChunk(x, z));
         }
-        
-        System.out.println("[BlockSearch] Scan complete: checked " + chunksScanned + " chunks, " + chunksLoaded + " were loaded, found " + results.size() + " blocks");
-        return results;
     }
 
     private static void onWorldRender(WorldRenderContext context) {
-        if (!enabled || blockToSearch == null) return;
+        if (!enabled || targets.isEmpty()) return;
         MinecraftClient client = MinecraftClient.getInstance();
         if (client.world == null || client.player == null) return;
         long now = client.world.getTime();
+        scheduler.onFrame(System.nanoTime());
+        stepIncremental(client);
         
-        // Only scan if enough ticks have passed and not already scanning
-        // Increased interval for multiplayer stability
-        boolean isMultiplayer = client.getCurrentServerEntry() != null;
-        int effectiveScanInterval = isMultiplayer ? Math.max(scanIntervalTicks * 4, 20) : scanIntervalTicks; // 4x slower in multiplayer, min 1 second
-        
-        if (!scanning.get() && (now - lastScanTick >= effectiveScanInterval)) {
-            requestScan(client, client.player.getChunkPos());
+        // Block updates keep the index current, so the timer only re-queries once the
+        // player has moved far enough that the nearest hits may have changed
+        if (activeScan == null && (now - lastScanTick >= scheduler.getIntervalTicks())) {
+            if (indexedLookup != getLookup()) {
+                requestScan(client, client.player.getChunkPos(), BackgroundExecutor.Priority.BACKGROUND);
+            } else if (hasMovedPastResults(client.player.getBlockPos())) {
+                refreshResults(client);
+            }
             lastScanTick = now;
         }
+        if (resultsDirty) {
+            refreshResults(client);
+        }
         
-        // Chunk movement trigger - but only if not already scanning
+        // Chunk movement trigger - the index already holds every loaded chunk, so just re-query it
         ChunkPos currentChunk = client.player.getChunkPos();
-        if (!scanning.get() && (lastPlayerChunk == null || !lastPlayerChunk.equals(currentChunk) || client != lastClient)) {
-            requestScan(client, currentChunk);
+        if (activeScan == null && (lastPlayerChunk == null || !lastPlayerChunk.equals(currentChunk) || client != lastClient)) {
+            if (indexedLookup != getLookup() || client != lastClient) {
+                requestScan(client, currentChunk, BackgroundExecutor.Priority.BACKGROUND);
+            } else {
+                refreshResults(client);
+            }
             lastPlayerChunk = currentChunk;
             lastClient = client;
         }
 
+        SearchResults snapshot = results;
+        if (snapshot != meshResults) {
+            // Results changed, the only time the geometry needs rebuilding
+            highlightMesh = buildHighlightMesh(snapshot.hits(), snapshot.veins(), client.player.getBlockPos());
+            meshResults = snapshot;
+        }
+        HighlightMesh mesh = highlightMesh;
+        if (mesh == null || mesh.getFaceCount() == 0) {
+            lastDrawnQuads = 0;
+            return;
+        }
+
         MatrixStack matrices = context.matrixStack();
         Vec3d cam = context.camera().getPos();
         VertexConsumerProvider.Immediate immediate = client.getBufferBuilders().getEntityVertexConsumers();
         VertexConsumer quads = immediate.getBuffer(RenderLayer.getGuiOverlay());
 
-        double min = 0.25, max = 0.75; // 0.5 the size of a cube
         // Synchronized RGB color based on world time
         float hue = ((MinecraftClient.getInstance().world.getTime() % 200) / 200.0f);
-        int rgb = java.awt.Color.HSBtoRGB(hue, 1.0f, 1.0f);
-        float r = ((rgb >> 16) & 0xFF) / 255.0f;
-        float g = ((rgb >> 8) & 0xFF) / 255.0f;
-        float b = (rgb & 0xFF) / 255.0f;
+        int rainbow = java.awt.Color.HSBtoRGB(hue, 1.0f, 1.0f);
         float a = 0.5F;
-        for (BlockPos pos : foundBlocks) {
-            double x = pos.getX() - cam.x;
-            double y = pos.getY() - cam.y;
-            double z = pos.getZ() - cam.z;
-            // Bottom face (y = min)
-            drawQuad(matrices, quads, x + min, y + min, z + min, max - min, 0.0, 0.0, 0.0, 0.0, max - min, r, g, b, a, 0.0f, -1.0f, 0.0f);
-            drawQuadReversed(matrices, quads, x + min, y + min, z + min, max - min, 0.0, 0.0, 0.0, 0.0, max - min, r, g, b, a, 0.0f, 1.0f, 0.0f);
-            // Top face (y = max)
-            drawQuad(matrices, quads, x + min, y + max, z + min, max - min, 0.0, 0.0, 0.0, 0.0, max - min, r, g, b, a, 0.0f, 1.0f, 0.0f);
-            drawQuadReversed(matrices, quads, x + min, y + max, z + min, max - min, 0.0, 0.0, 0.0, 0.0, max - min, r, g, b, a, 0.0f, -1.0f, 0.0f);
-            // North face (z = min)
-            drawQuad(matrices, quads, x + min, y + min, z + min, max - min, 0.0, 0.0, 0.0, max - min, 0.0, r, g, b, a, 0.0f, 0.0f, -1.0f);
-            drawQuadReversed(matrices, quads, x + min, y + min, z + min, max - min, 0.0, 0.0, 0.0, max - min, 0.0, r, g, b, a, 0.0f, 0.0f, 1.0f);
-            // South face (z = max)
-            drawQuad(matrices, quads, x + min, y + min, z + max, max - min, 0.0, 0.0, 0.0, max - min, 0.0, r, g, b, a, 0.0f, 0.0f, 1.0f);
-            drawQuadReversed(matrices, quads, x + min, y + min, z + max, max - min, 0.0, 0.0, 0.0, max - min, 0.0, r, g, b, a, 0.0f, 0.0f, -1.0f);
-            // West face (x = min)
-            drawQuad(matrices, quads, x + min, y + min, z + min, 0.0, max - min, 0.0, 0.0, 0.0, max - min, r, g, b, a, -1.0f, 0.0f, 0.0f);
-            drawQuadReversed(matrices, quads, x + min, y + min, z + min, 0.0, max - min, 0.0, 0.0, 0.0, max - min, r, g, b, a, 1.0f, 0.0f, 0.0f);
-            // East face (x = max)
-            drawQuad(matrices, quads, x + max, y + min, z + min, 0.0, max - min, 0.0, 0.0, 0.0, max - min, r, g, b, a, 1.0f, 0.0f, 0.0f);
-            drawQuadReversed(matrices, quads, x + max, y + min, z + min, 0.0, max - min, 0.0, 0.0, 0.0, max - min, r, g, b, a, -1.0f, 0.0f, 0.0f);
+        Vector3f right = OverlayCulling.cameraRight(context.camera());
+        Vector3f up = OverlayCulling.cameraUp(context.camera());
+        int drawn = 0;
+        List<SearchTarget> meshTargets = meshResults.targets();
+        for (int t = 0; t < mesh.getGroupCount() && t < meshTargets.size(); t++) {
+            int rgb = meshTargets.get(t).color() == SearchTarget.RAINBOW ? rainbow : meshTargets.get(t).color();
+            float r = ((rgb >> 16) & 0xFF) / 255.0f;
+            float g = ((rgb >> 8) & 0xFF) / 255.0f;
+            float b = (rgb & 0xFF) / 255.0f;
+            drawn += mesh.draw(matrices.peek(), quads, context.frustum(), cam, right, up, t, r, g, b, a);
         }
+        lastDrawnQuads = drawn;
         immediate.draw();
     }
 
-    private static void drawQuad(MatrixStack matrices, VertexConsumer buffer,
-                                double x, double y, double z,
-                                double dx1, double dy1, double dz1,
-                                double dx2, double dy2, double dz2,
-                                float r, float g, float b, float a,
-                                float nx, float ny, float nz) {
-        MatrixStack.Entry entry = matrices.peek();
-        buffer.vertex(entry.getPositionMatrix(), (float)x, (float)y, (float)z).color(r, g, b, a).normal(nx, ny, nz);
-        buffer.vertex(entry.getPositionMatrix(), (float)(x + dx1), (float)(y + dy1), (float)(z + dz1)).color(r, g, b, a).normal(nx, ny, nz);
-        buffer.vertex(entry.getPositionMatrix(), (float)(x + dx1 + dx2), (float)(y + dy1 + dy2), (float)(z + dz1 + dz2)).color(r, g, b, a).normal(nx, ny, nz);
-        buffer.vertex(entry.getPositionMatrix(), (float)(x + dx2), (float)(y + dy2), (float)(z + dz2)).color(r, g, b, a).normal(nx, ny, nz);
-    }
-
-    private static void drawQuadReversed(MatrixStack matrices, VertexConsumer buffer,
-                                double x, double y, double z,
-                                double dx1, double dy1, double dz1,
-                                double dx2, double dy2, double dz2,
-                                float r, float g, float b, float a,
-                                float nx, float ny, float nz) {
-        MatrixStack.Entry entry = matrices.peek();
-        buffer.vertex(entry.getPositionMatrix(), (float)x, (float)y, (float)z).color(r, g, b, a).normal(nx, ny, nz);
-        buffer.vertex(entry.getPositionMatrix(), (float)(x + dx2), (float)(y + dy2), (float)(z + dz2)).color(r, g, b, a).normal(nx, ny, nz);
-        buffer.vertex(entry.getPositionMatrix(), (float)(x + dx1 + dx2), (float)(y + dy1 + dy2), (float)(z + dz1 + dz2)).color(r, g, b, a).normal(nx, ny, nz);
-        buffer.vertex(entry.getPositionMatrix(), (float)(x + dx1), (float)(y + dy1), (float)(z + dz1)).color(r, g, b, a).normal(nx, ny, nz);
+    /**
+     * Build the highlight cubes for a result set, one group per target, around an origin near the player.
+     */
+    private static HighlightMesh buildHighlightMesh(List<PositionTree> results, List<List<VeinClusters.Vein>> meshVeins, BlockPos origin) {
+        float min = 0.25f, max = 0.75f; // 0.5 the size of a cube
+        HighlightMesh mesh = new HighlightMesh(origin.getX(), origin.getY(), origin.getZ());
+        if (showVeins) {
+            // One box around each vein instead of the blocks themselves, the largest ones up to the usual cap
+            for (List<VeinClusters.Vein> veins : meshVeins) {
+                for (int v = 0; v < veins.size() && v < maxRenderedBlocks; v++) {
+                    VeinClusters.Vein vein = veins.get(v);
+                    mesh.addBlockBox(vein.minX(), vein.minY(), vein.minZ(), vein.maxX(), vein.maxY(), vein.maxZ(), 0.05f);
+                }
+                mesh.endGroup();
+            }
+            PerformanceMonitor.incrementCounter("highlight_mesh_builds");
+            return mesh;
+        }
+        // Tree order keeps nearby hits together, which keeps the mesh's culling batches tight
+        for (PositionTree hits : results) {
+            if (mergedHighlights) {
+                long[] positions = new long[hits.size()];
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = hits.get(i);
+                }
+                mesh.addMergedBlocks(positions, positions.length);
+            } else {
+                for (int i = 0; i < hits.size(); i++) {
+                    mesh.addCube(hits.getX(i), hits.getY(i), hits.getZ(i), min, max);
+                }
+            }
+            mesh.endGroup();
+        }
+        PerformanceMonitor.incrementCounter("highlight_mesh_builds");
+        return mesh;
     }
 
     // --- GUI/Config API for BlockSearchFeature ---
     public static void setBlockToSearch(Block block) {
-        blockToSearch = block;
+        setTargets(List.of(SearchTarget.of(block, SearchTarget.RAINBOW)));
+    }
+
+    /**
+     * Replace the whole target list and start a fresh scan for it.
+     */
+    public static void setTargets(List<SearchTarget> newTargets) {
+        if (newTargets.isEmpty()) return;
+        targets = List.copyOf(newTargets);
+        lookup = null; // Recompiled on next use
+        blockToSearch = targets.get(0).block();
         enabled = true;
         lastPlayerChunk = null;
         // Clear previous results so old blocks are not rendered
-        foundBlocks.clear();
-        // Force scanning flag to false so a new scan always starts
-        scanning.set(false);
-        // Reset throttling for immediate user-requested scan
-        lastScanRequestTime = 0;
-        // Immediately trigger a scan for the new block type
-        if (MinecraftClient.getInstance().player != null) {
-            requestScan(MinecraftClient.getInstance(), MinecraftClient.getInstance().player.getChunkPos(), block);
+        clearResults();
+        // Immediately trigger a scan for the new targets, superseding any scan for the old ones
+        restartScan();
+    }
+
+    /**
+     * Add a block to the target list with the next default color. Does nothing if already searched for.
+     */
+    public static void addTarget(Block block) {
+        if (isTarget(block)) return;
+        List<SearchTarget> updated = new ArrayList<>(targets);
+        updated.add(SearchTarget.of(block, SearchTarget.defaultColor(updated.size())));
+        setTargets(updated);
+    }
+
+    /**
+     * Remove a block from the target list. The last remaining target cannot be removed.
+     */
+    public static void removeTarget(Block block) {
+        removeTarget(BlockQuery.of(block).getSource());
+    }
+
+    /**
+     * Remove the target parsed from the given query text.
+     *
+     * @return true if a target was removed
+     */
+    public static boolean removeTarget(String querySource) {
+        List<SearchTarget> updated = new ArrayList<>(targets);
+        updated.removeIf(target -> target.query().getSource().equals(querySource));
+        if (!updated.isEmpty() && updated.size() != targets.size()) {
+            setTargets(updated);
+            return true;
+        }
+        return false;
+    }
+
+    public static boolean isTarget(Block block) {
+        for (SearchTarget target : targets) {
+            if (target.query().isBlock(block)) return true;
+        }
+        return false;
+    }
+
+    public static List<SearchTarget> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Limit the search to a band of heights and start a fresh scan. Sections
+     * outside the band are never scanned.
+     */
+    public static void setBand(ScanBand newBand) {
+        if (newBand.equals(band)) return;
+        band = newBand;
+        lookup = null; // Recompiled on next use
+        lastPlayerChunk = null;
+        clearResults();
+        if (enabled) {
+            restartScan();
         }
     }
 
+    public static ScanBand getBand() {
+        return band;
+    }
+
+    /**
+     * Only find blocks touching air or a fluid, and start a fresh scan.
+     */
+    public static void setExposedOnly(boolean value) {
+        if (value == exposedOnly) return;
+        exposedOnly = value;
+        lookup = null; // Recompiled on next use
+        lastPlayerChunk = null;
+        clearResults();
+        if (enabled) {
+            restartScan();
+        }
+    }
+
+    public static boolean isExposedOnly() {
+        return exposedOnly;
+    }
+
     public static void setScanDistance(int distance) {
         System.out.println("[BlockSearch] Setting scan distance: " + distance + " (Multiplayer: " + (MinecraftClient.getInstance().getCurrentServerEntry() != null) + ")");
         scanDistance = distance;
         if (enabled && MinecraftClient.getInstance().player != null) {
-            foundBlocks.clear(); // Clear previous results
-            scanning.set(false); // Ensure scan can run
-            lastScanRequestTime = 0; // Reset throttling for immediate user-requested scan
-            requestScan(MinecraftClient.getInstance(), MinecraftClient.getInstance().player.getChunkPos());
+            clearResults(); // Clear previous results
+            restartScan(); // Newly covered chunks may never have been scanned
             if (MinecraftClient.getInstance().world != null) {
                 MinecraftClient.getInstance().worldRenderer.reload();
             }
@@ -345,28 +1169,24 @@ public class BlockSearchFeature {
 
     public static void setMaxRenderedBlocks(int maxBlocks) {
         maxRenderedBlocks = maxBlocks;
-        foundBlocks.clear(); // Clear previous results
-        scanning.set(false); // Ensure scan can run
-        if (enabled && MinecraftClient.getInstance().player != null) {
-            requestScan(MinecraftClient.getInstance(), MinecraftClient.getInstance().player.getChunkPos());
-            if (MinecraftClient.getInstance().world != null) {
-                MinecraftClient.getInstance().worldRenderer.reload();
-            }
-        }
+        // Only limits what is taken from the index, so no rescan is needed
+        resultsDirty = true;
     }
 
     public static void setEnabled(boolean value) {
         enabled = value;
-        foundBlocks.clear(); // Clear previous results
-        scanning.set(false); // Ensure scan can run
+        clearResults(); // Clear previous results
         if (enabled && MinecraftClient.getInstance().player != null) {
-            requestScan(MinecraftClient.getInstance(), MinecraftClient.getInstance().player.getChunkPos());
+            restartScan();
+            if (MinecraftClient.getInstance().world != null) {
+                MinecraftClient.getInstance().worldRenderer.reload();
+            }
+        } else {
+            cancelScan();
             if (MinecraftClient.getInstance().world != null) {
+                // If disabling, force a rerender to clear highlights
                 MinecraftClient.getInstance().worldRenderer.reload();
             }
-        } else if (MinecraftClient.getInstance().world != null) {
-            // If disabling, force a rerender to clear highlights
-            MinecraftClient.getInstance().worldRenderer.reload();
         }
     }
 
@@ -378,6 +1198,13 @@ public class BlockSearchFeature {
         return scanDistance;
     }
 
+    /**
+     * Search radius in chunks actually used, see {@link #getScanDistance()} for the setting.
+     */
+    public static int getEffectiveScanDistance() {
+        return getEffectiveScanDistance(MinecraftClient.getInstance());
+    }
+
     public static int getMaxRenderedBlocks() {
         return maxRenderedBlocks;
     }
@@ -387,18 +1214,134 @@ public class BlockSearchFeature {
     }
 
     public static void setScanIntervalTicks(int ticks) {
+        // Base cadence the scheduler stretches or shortens; the current results stay valid
         scanIntervalTicks = ticks;
-        foundBlocks.clear(); // Clear previous results
-        scanning.set(false); // Ensure scan can run
-        if (enabled && MinecraftClient.getInstance().player != null) {
-            requestScan(MinecraftClient.getInstance(), MinecraftClient.getInstance().player.getChunkPos());
-            if (MinecraftClient.getInstance().world != null) {
-                MinecraftClient.getInstance().worldRenderer.reload();
-            }
-        }
     }
 
     public static int getScanIntervalTicks() {
         return scanIntervalTicks;
     }
+
+    /**
+     * Set the share of one core, in percent, that scanning newly loaded chunks
+     * should stay under. Cadence and radius adapt to it from the next tick.
+     */
+    public static void setScanCpuPercent(int percent) {
+        scheduler.setCpuBudgetPercent(percent);
+    }
+
+    public static ScanScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Switch between background scanning and budgeted scanning on the render thread.
+     */
+    public static void setBudgetedScanning(boolean value) {
+        if (budgetedScanning == value) return;
+        budgetedScanning = value;
+        // Any scan of the other mode is abandoned
+        cancelScan();
+        discardIncremental(true);
+        if (enabled) {
+            restartScan();
+        }
+    }
+
+    public static boolean isScanning() {
+        return activeScan != null;
+    }
+
+    public static int getScanGeneration() {
+        return scanGeneration;
+    }
+
+    /**
+     * The snapshot the HUD and highlights are currently drawn from.
+     */
+    public static SearchResults getResults() {
+        return results;
+    }
+
+    /**
+     * Switch between separate cubes and merged surfaces for the highlights.
+     */
+    public static void setMergedHighlights(boolean value) {
+        mergedHighlights = value;
+        meshResults = null; // Rebuilt on the next frame
+    }
+
+    public static boolean isMergedHighlights() {
+        return mergedHighlights;
+    }
+
+    /**
+     * Switch between highlighting every block and one marker per vein.
+     */
+    public static void setShowVeins(boolean value) {
+        showVeins = value;
+        meshResults = null; // Rebuilt on the next frame
+        resultsDirty = true; // Clusters the veins if the index changed while they were off
+    }
+
+    public static boolean isShowVeins() {
+        return showVeins;
+    }
+
+    public static void setShowHeatmap(boolean value) {
+        showHeatmap = value;
+    }
+
+    public static boolean isShowHeatmap() {
+        return showHeatmap;
+    }
+
+    /**
+     * Hit counts per chunk and section of everything currently indexed.
+     */
+    public static DensityGrid getDensity() {
+        return index.getDensity();
+    }
+
+    /**
+     * Number of quads drawn in the last frame after culling, per side.
+     */
+    public static int getDrawnHighlightQuads() {
+        return lastDrawnQuads;
+    }
+
+    /**
+     * Number of quads in the current highlight mesh, per side.
+     */
+    public static int getHighlightFaceCount() {
+        HighlightMesh mesh = highlightMesh;
+        return mesh != null ? mesh.getFaceCount() : 0;
+    }
+
+    public static boolean isBudgetedScanning() {
+        return budgetedScanning;
+    }
+
+    public static void setScanBudgetMicros(int micros) {
+        scanBudgetMicros = Math.max(50, micros);
+    }
+
+    public static int getScanBudgetMicros() {
+        return scanBudgetMicros;
+    }
+
+    public static void setHudNearestCount(int count) {
+        hudNearestCount = Math.clamp(count, 1, MAX_HUD_NEAREST);
+    }
+
+    public static int getHudNearestCount() {
+        return hudNearestCount;
+    }
+
+    /**
+     * The budgeted scanner, or null if none has run since the targets last changed.
+     */
+    public static IncrementalScanner getIncrementalScanner() {
+        return incremental;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,365 @@
+package org.bookwormpi.clientsidetesting.client.render;
+
+import net.minecraft.client.render.Frustum;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+/**
+ * Highlight geometry for block search hits, built once whenever the results change
+ * and replayed every frame.
+ *
+ * Faces are stored relative to an origin block so the floats stay small and exact.
+ * Drawing only adds the origin-to-camera offset and a color per group, so the
+ * per-frame cost is a copy of the stored vertices rather than rebuilding every cube.
+ * The vertices live on the CPU and are copied into the immediate buffer each
+ * frame; nothing stays on the GPU between frames.
+ * Each face is stored once and emitted with both windings so it shows from inside too.
+ *
+ * Blocks can be added as separate small cubes, or as merged full blocks: faces
+ * shared by two neighbouring blocks are dropped and the remaining coplanar faces
+ * are greedily merged into rectangles, which for dense clusters cuts the face
+ * count by one or two orders of magnitude.
+ *
+ * Items are kept in small batches with a bounding box each. Drawing skips batches
+ * outside the frustum and draws far ones as one camera-facing point per item
+ * (see {@link OverlayCulling}), so callers should add items in spatial order.
+ */
+public class HighlightMesh {
+    // Four corners, then the normal
+    private static final int FLOATS_PER_FACE = 15;
+    // Merged faces are packed as 16-bit fields biased by this; blocks further from the origin are skipped
+    private static final int BIAS = 1 << 14;
+    // Merged faces sit just outside the block so they do not fight with its own faces
+    private static final float FACE_OFFSET = 0.005f;
+    // A batch is closed after the item that brings it to this many faces
+    private static final int BATCH_FACES = 96;
+    // Size of a far point relative to its distance, so it stays roughly the same on screen
+    private static final float POINT_SCALE = 0.008f;
+
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private float[] faces = new float[FLOATS_PER_FACE * 64];
+    private int faceCount = 0;
+    // Item centers, drawn instead of the faces when a batch is far away
+    private float[] points = new float[3 * 64];
+    private int pointCount = 0;
+    // Face and point end of each batch, and its bounds as min x, y, z, max x, y, z
+    private int[] batchFaceEnds = new int[16];
+    private int[] batchPointEnds = new int[16];
+    private float[] batchBounds = new float[6 * 16];
+    private int batchCount = 0;
+    private final float[] openBounds = new float[6];
+    // Batch end of each group
+    private int[] groupEnds = new int[4];
+    private int groupCount = 0;
+
+    public HighlightMesh(int originX, int originY, int originZ) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        resetOpenBounds();
+    }
+
+    /**
+     * Add a cube spanning [min, max] within the block at the given position.
+     */
+    public void addCube(int blockX, int blockY, int blockZ, float min, float max) {
+        float x = blockX - originX;
+        float y = blockY - originY;
+        float z = blockZ - originZ;
+        addBox(x + min, y + min, z + min, x + max, y + max, z + max);
+    }
+
+    /**
+     * Add a box around a range of blocks, both corners inclusive, grown by a margin on every side.
+     */
+    public void addBlockBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, float margin) {
+        addBox(minX - originX - margin, minY - originY - margin, minZ - originZ - margin,
+            maxX - originX + 1 + margin, maxY - originY + 1 + margin, maxZ - originZ + 1 + margin);
+    }
+
+    private void addBox(float x0, float y0, float z0, float x1, float y1, float z1) {
+        float sx = x1 - x0;
+        float sy = y1 - y0;
+        float sz = z1 - z0;
+        // Bottom and top
+        addFace(x0, y0, z0, sx, 0, 0, 0, 0, sz, 0, -1, 0);
+        addFace(x0, y1, z0, sx, 0, 0, 0, 0, sz, 0, 1, 0);
+        // North and south
+        addFace(x0, y0, z0, sx, 0, 0, 0, sy, 0, 0, 0, -1);
+        addFace(x0, y0, z1, sx, 0, 0, 0, sy, 0, 0, 0, 1);
+        // West and east
+        addFace(x0, y0, z0, 0, sy, 0, 0, 0, sz, -1, 0, 0);
+        addFace(x1, y0, z0, 0, sy, 0, 0, 0, sz, 1, 0, 0);
+        endItem((x0 + x1) / 2, (y0 + y1) / 2, (z0 + z1) / 2);
+    }
+
+    /**
+     * Add full blocks as one merged surface. Faces between two of the given blocks
+     * are culled, then each plane's visible faces are merged into strips along one
+     * axis and strips of equal extent into rectangles along the other.
+     *
+     * @param positions block positions packed with {@link BlockPos#asLong}
+     */
+    public void addMergedBlocks(long[] positions, int count) {
+        long[] sorted = Arrays.copyOf(positions, count);
+        Arrays.sort(sorted);
+        long[] faceKeys = new long[count];
+        long[] strips = new long[count];
+        for (int direction = 0; direction < 6; direction++) {
+            int axis = direction >> 1; // 0 = x, 1 = y, 2 = z
+            boolean positive = (direction & 1) != 0;
+            int step = positive ? 1 : -1;
+            // Visible faces as (plane, v, u), so runs along u are adjacent once sorted
+            int visible = 0;
+            for (int i = 0; i < count; i++) {
+                int x = BlockPos.unpackLongX(sorted[i]);
+                int y = BlockPos.unpackLongY(sorted[i]);
+                int z = BlockPos.unpackLongZ(sorted[i]);
+                long neighbour = BlockPos.asLong(x + (axis == 0 ? step : 0), y + (axis == 1 ? step : 0), z + (axis == 2 ? step : 0));
+                if (Arrays.binarySearch(sorted, neighbour) >= 0) continue; // Shared face, never visible
+                int rx = x - originX + BIAS;
+                int ry = y - originY + BIAS;
+                int rz = z - originZ + BIAS;
+                if ((rx | ry | rz) < 0 || rx >= 2 * BIAS || ry >= 2 * BIAS || rz >= 2 * BIAS) continue;
+                int plane = axis == 0 ? rx : axis == 1 ? ry : rz;
+                int u = axis == 0 ? ry : rx;
+                int v = axis == 2 ? ry : rz;
+                faceKeys[visible++] = ((long) plane << 32) | ((long) v << 16) | u;
+            }
+            Arrays.sort(faceKeys, 0, visible);
+            // Runs of consecutive u become strips, keyed (plane, u0, u1, v)
+            int stripCount = 0;
+            for (int i = 0; i < visible; ) {
+                int j = i + 1;
+                while (j < visible && faceKeys[j] == faceKeys[j - 1] + 1) j++;
+                long plane = faceKeys[i] >>> 32;
+                long v = (faceKeys[i] >>> 16) & 0xFFFF;
+                strips[stripCount++] = (plane << 48) | ((faceKeys[i] & 0xFFFF) << 32) | ((faceKeys[j - 1] & 0xFFFF) << 16) | v;
+                i = j;
+            }
+            Arrays.sort(strips, 0, stripCount);
+            // Strips with the same extent on consecutive v become one rectangle
+            for (int i = 0; i < stripCount; ) {
+                int j = i + 1;
+                while (j < stripCount && strips[j] == strips[j - 1] + 1) j++;
+                long strip = strips[i];
+                addRect(axis, positive,
+                    (int) (strip >>> 48) - BIAS,
+                    (int) ((strip >>> 32) & 0xFFFF) - BIAS, (int) ((strip >>> 16) & 0xFFFF) - BIAS,
+                    (int) (strip & 0xFFFF) - BIAS, (int) (strips[j - 1] & 0xFFFF) - BIAS);
+                i = j;
+            }
+        }
+    }
+
+    private void addRect(int axis, boolean positive, int plane, int u0, int u1, int v0, int v1) {
+        float p = positive ? plane + 1 + FACE_OFFSET : plane - FACE_OFFSET;
+        float du = u1 - u0 + 1;
+        float dv = v1 - v0 + 1;
+        float n = positive ? 1 : -1;
+        float u = u0 + du / 2;
+        float v = v0 + dv / 2;
+        switch (axis) {
+            case 0 -> {
+                addFace(p, u0, v0, 0, du, 0, 0, 0, dv, n, 0, 0); // u = y, v = z
+                endItem(p, u, v);
+            }
+            case 1 -> {
+                addFace(u0, p, v0, du, 0, 0, 0, 0, dv, 0, n, 0); // u = x, v = z
+                endItem(u, p, v);
+            }
+            default -> {
+                addFace(u0, v0, p, du, 0, 0, 0, dv, 0, 0, 0, n); // u = x, v = y
+                endItem(u, v, p);
+            }
+        }
+    }
+
+    /**
+     * Add a quad with corners p, p + d1, p + d1 + d2 and p + d2, in origin-relative coordinates.
+     */
+    public void addFace(float x, float y, float z,
+                        float dx1, float dy1, float dz1,
+                        float dx2, float dy2, float dz2,
+                        float nx, float ny, float nz) {
+        int i = faceCount * FLOATS_PER_FACE;
+        if (i + FLOATS_PER_FACE > faces.length) {
+            faces = Arrays.copyOf(faces, faces.length * 2);
+        }
+        faces[i] = x;
+        faces[i + 1] = y;
+        faces[i + 2] = z;
+        faces[i + 3] = x + dx1;
+        faces[i + 4] = y + dy1;
+        faces[i + 5] = z + dz1;
+        faces[i + 6] = x + dx1 + dx2;
+        faces[i + 7] = y + dy1 + dy2;
+        faces[i + 8] = z + dz1 + dz2;
+        faces[i + 9] = x + dx2;
+        faces[i + 10] = y + dy2;
+        faces[i + 11] = z + dz2;
+        faces[i + 12] = nx;
+        faces[i + 13] = ny;
+        faces[i + 14] = nz;
+        faceCount++;
+        for (int c = 0; c < 12; c += 3) {
+            openBounds[0] = Math.min(openBounds[0], faces[i + c]);
+            openBounds[1] = Math.min(openBounds[1], faces[i + c + 1]);
+            openBounds[2] = Math.min(openBounds[2], faces[i + c + 2]);
+            openBounds[3] = Math.max(openBounds[3], faces[i + c]);
+            openBounds[4] = Math.max(openBounds[4], faces[i + c + 1]);
+            openBounds[5] = Math.max(openBounds[5], faces[i + c + 2]);
+        }
+    }
+
+    /**
+     * Finish one item made of the faces added since the last item, with the point
+     * that stands in for it when far away.
+     */
+    public void endItem(float centerX, float centerY, float centerZ) {
+        if (pointCount * 3 + 3 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[pointCount * 3] = centerX;
+        points[pointCount * 3 + 1] = centerY;
+        points[pointCount * 3 + 2] = centerZ;
+        pointCount++;
+        int batchStart = batchCount == 0 ? 0 : batchFaceEnds[batchCount - 1];
+        if (faceCount - batchStart >= BATCH_FACES) {
+            closeBatch();
+        }
+    }
+
+    private void closeBatch() {
+        int batchStart = batchCount == 0 ? 0 : batchFaceEnds[batchCount - 1];
+        if (faceCount == batchStart) return;
+        if (batchCount == batchFaceEnds.length) {
+            batchFaceEnds = Arrays.copyOf(batchFaceEnds, batchCount * 2);
+            batchPointEnds = Arrays.copyOf(batchPointEnds, batchCount * 2);
+            batchBounds = Arrays.copyOf(batchBounds, batchCount * 12);
+        }
+        batchFaceEnds[batchCount] = faceCount;
+        batchPointEnds[batchCount] = pointCount;
+        System.arraycopy(openBounds, 0, batchBounds, batchCount * 6, 6);
+        batchCount++;
+        resetOpenBounds();
+    }
+
+    private void resetOpenBounds() {
+        Arrays.fill(openBounds, 0, 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(openBounds, 3, 6, Float.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Close the current group. Faces added since the previous call share one color when drawn.
+     */
+    public void endGroup() {
+        closeBatch();
+        if (groupCount == groupEnds.length) {
+            groupEnds = Arrays.copyOf(groupEnds, groupCount * 2);
+        }
+        groupEnds[groupCount++] = batchCount;
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    public int getOriginZ() {
+        return originZ;
+    }
+
+    /**
+     * Emit the visible part of one group, offset from the origin to the camera.
+     * Batches outside the frustum are skipped and far ones are drawn as points
+     * facing the camera.
+     *
+     * @return the number of quads emitted, per side
+     */
+    public int draw(MatrixStack.Entry entry, VertexConsumer buffer, Frustum frustum, Vec3d camera,
+                    Vector3f right, Vector3f up, int group, float r, float g, float b, float a) {
+        if (group >= groupCount) return 0;
+        Matrix4f matrix = entry.getPositionMatrix();
+        float ox = (float) (originX - camera.x);
+        float oy = (float) (originY - camera.y);
+        float oz = (float) (originZ - camera.z);
+        int drawn = 0;
+        for (int batch = group == 0 ? 0 : groupEnds[group - 1]; batch < groupEnds[group]; batch++) {
+            int bounds = batch * 6;
+            double minX = originX + batchBounds[bounds], minY = originY + batchBounds[bounds + 1], minZ = originZ + batchBounds[bounds + 2];
+            double maxX = originX + batchBounds[bounds + 3], maxY = originY + batchBounds[bounds + 4], maxZ = originZ + batchBounds[bounds + 5];
+            if (!OverlayCulling.isVisible(frustum, minX, minY, minZ, maxX, maxY, maxZ)) continue;
+            if (OverlayCulling.isFar(OverlayCulling.distanceSq(camera, minX, minY, minZ, maxX, maxY, maxZ))) {
+                int from = batch == 0 ? 0 : batchPointEnds[batch - 1];
+                drawPoints(matrix, buffer, from, batchPointEnds[batch], ox, oy, oz, right, up, r, g, b, a);
+                drawn += batchPointEnds[batch] - from;
+            } else {
+                int from = batch == 0 ? 0 : batchFaceEnds[batch - 1];
+                drawFaces(matrix, buffer, from, batchFaceEnds[batch], ox, oy, oz, r, g, b, a);
+                drawn += batchFaceEnds[batch] - from;
+            }
+        }
+        return drawn;
+    }
+
+    private void drawFaces(Matrix4f matrix, VertexConsumer buffer, int from, int to,
+                           float ox, float oy, float oz, float r, float g, float b, float a) {
+        int end = to * FLOATS_PER_FACE;
+        for (int i = from * FLOATS_PER_FACE; i < end; i += FLOATS_PER_FACE) {
+            float x0 = faces[i] + ox, y0 = faces[i + 1] + oy, z0 = faces[i + 2] + oz;
+            float x1 = faces[i + 3] + ox, y1 = faces[i + 4] + oy, z1 = faces[i + 5] + oz;
+            float x2 = faces[i + 6] + ox, y2 = faces[i + 7] + oy, z2 = faces[i + 8] + oz;
+            float x3 = faces[i + 9] + ox, y3 = faces[i + 10] + oy, z3 = faces[i + 11] + oz;
+            float nx = faces[i + 12], ny = faces[i + 13], nz = faces[i + 14];
+            buffer.vertex(matrix, x0, y0, z0).color(r, g, b, a).normal(nx, ny, nz);
+            buffer.vertex(matrix, x1, y1, z1).color(r, g, b, a).normal(nx, ny, nz);
+            buffer.vertex(matrix, x2, y2, z2).color(r, g, b, a).normal(nx, ny, nz);
+            buffer.vertex(matrix, x3, y3, z3).color(r, g, b, a).normal(nx, ny, nz);
+            // Reversed winding for the back side
+            buffer.vertex(matrix, x0, y0, z0).color(r, g, b, a).normal(-nx, -ny, -nz);
+            buffer.vertex(matrix, x3, y3, z3).color(r, g, b, a).normal(-nx, -ny, -nz);
+            buffer.vertex(matrix, x2, y2, z2).color(r, g, b, a).normal(-nx, -ny, -nz);
+            buffer.vertex(matrix, x1, y1, z1).color(r, g, b, a).normal(-nx, -ny, -nz);
+        }
+    }
+
+    private void drawPoints(Matrix4f matrix, VertexConsumer buffer, int from, int to,
+                            float ox, float oy, float oz, Vector3f right, Vector3f up, float r, float g, float b, float a) {
+        for (int i = from * 3; i < to * 3; i += 3) {
+            float x = points[i] + ox, y = points[i + 1] + oy, z = points[i + 2] + oz;
+            // Camera-relative here, so the length is the distance to the camera
+            float half = POINT_SCALE * (float) Math.sqrt(x * x + y * y + z * z);
+            float rx = right.x * half, ry = right.y * half, rz = right.z * half;
+            float ux = up.x * half, uy = up.y * half, uz = up.z * half;
+            buffer.vertex(matrix, x - rx - ux, y - ry - uy, z - rz - uz).color(r, g, b, a).normal(0, 1, 0);
+            buffer.vertex(matrix, x + rx - ux, y + ry - uy, z + rz - uz).color(r, g, b, a).normal(0, 1, 0);
+            buffer.vertex(matrix, x + rx + ux, y + ry + uy, z + rz + uz).color(r, g, b, a).normal(0, 1, 0);
+            buffer.vertex(matrix, x - rx + ux, y - ry + uy, z - rz + uz).color(r, g, b, a).normal(0, 1, 0);
+            // Reversed winding, whichever way the layer culls
+            buffer.vertex(matrix, x - rx - ux, y - ry - uy, z - rz - uz).color(r, g, b, a).normal(0, 1, 0);
+            buffer.vertex(matrix, x - rx + ux, y - ry + uy, z - rz + uz).color(r, g, b, a).normal(0, 1, 0);
+            buffer.vertex(matrix, x + rx + ux, y + ry + uy, z + rz + uz).color(r, g, b, a).normal(0, 1, 0);
+            buffer.vertex(matrix, x + rx - ux, y + ry - uy, z + rz - uz).color(r, g, b, a).normal(0, 1, 0);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.bookwormpi.clientsidetesting.client.render;
+
+import net.minecraft.client.render.Camera;
+import net.minecraft.client.render.Frustum;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+import org.joml.Vector3f;
+
+/**
+ * Visibility pass shared by the world overlays.
+ *
+ * Items whose bounds are outside the frame's frustum are skipped, and items
+ * further than {@link #LOD_DISTANCE} are drawn with a cheaper shape, so the
+ * geometry emitted follows what is on screen rather than what was found.
+ */
+public class OverlayCulling {
+    // Beyond this many blocks from the camera an item is drawn as a single point
+    public static final double LOD_DISTANCE = 48.0;
+    private static final double LOD_DISTANCE_SQ = LOD_DISTANCE * LOD_DISTANCE;
+
+    /**
+     * Whether a box in world coordinates can be on screen. Everything counts as
+     * visible when the frame has no frustum.
+     */
+    public static boolean isVisible(Frustum frustum, Box box) {
+        return frustum == null || frustum.isVisible(box);
+    }
+
+    public static boolean isVisible(Frustum frustum, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        return frustum == null || frustum.isVisible(new Box(minX, minY, minZ, maxX, maxY, maxZ));
+    }
+
+    /**
+     * Squared distance from the camera to the nearest point of a box in world coordinates.
+     */
+    public static double distanceSq(Vec3d camera, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        double dx = Math.max(0, Math.max(minX - camera.x, camera.x - maxX));
+        double dy = Math.max(0, Math.max(minY - camera.y, camera.y - maxY));
+        double dz = Math.max(0, Math.max(minZ - camera.z, camera.z - maxZ));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public static boolean isFar(double distanceSq) {
+        return distanceSq > LOD_DISTANCE_SQ;
+    }
+
+    /**
+     * Screen-right direction of the camera in world space, for billboards.
+     */
+    public static Vector3f cameraRight(Camera camera) {
+        return new Vector3f(1, 0, 0).rotate(camera.getRotation());
+    }
+
+    /**
+     * Screen-up direction of the camera in world space, for billboards.
+     */
+    public static Vector3f cameraUp(Camera camera) {
+        return new Vector3f(0, 1, 0).rotate(camera.getRotation());
+    }
+}
@@ -23,20 +23,28 @@ public class PlayerBoxRenderFeature {
         MatrixStack matrices = context.matrixStack();
         Vec3d cameraPos = context.camera().getPos();
         VertexConsumerProvider.Immediate vertexConsumers = MinecraftClient.getInstance().getBufferBuilders().getEntityVertexConsumers();
+        Frustum frustum = context.frustum();
         for (PlayerEntity player : client.world.getPlayers()) {
             if (player == client.player) continue;
             Vec3d pos = player.getPos();
-            double x = pos.x - cameraPos.x;
-            double y = pos.y - cameraPos.y;
-            double z = pos.z - cameraPos.z;
             double width = 0.5;
             double depth = 0.5;
             double height = 1.8;
-            Box box = new Box(
-                    x - width / 2, y, z - depth / 2,
-                    x + width / 2, y + height, z + depth / 2
+            Box worldBox = new Box(
+                    pos.x - width / 2, pos.y, pos.z - depth / 2,
+                    pos.x + width / 2, pos.y + height, pos.z + depth / 2
             );
-            drawBox(matrices, box, 1.0f, 0.0f, 0.0f, 0.7f, vertexConsumers);
+            if (!OverlayCulling.isVisible(frustum, worldBox)) continue;
+            Box box = worldBox.offset(-cameraPos.x, -cameraPos.y, -cameraPos.z);
+            if (OverlayCulling.isFar(pos.squaredDistanceTo(cameraPos))) {
+                // A single line from feet to head instead of twelve edges
+                VertexConsumer consumer = vertexConsumers.getBuffer(RenderLayer.getLines());
+                double x = (box.minX + box.maxX) / 2;
+                double z = (box.minZ + box.maxZ) / 2;
+                drawLine(matrices.peek(), consumer, x, box.minY, z, x, box.maxY, z, 1.0f, 0.0f, 0.0f, 0.7f);
+            } else {
+                drawBox(matrices, box, 1.0f, 0.0f, 0.0f, 0.7f, vertexConsumers);
+            }
         }
         vertexConsumers.draw();
     }
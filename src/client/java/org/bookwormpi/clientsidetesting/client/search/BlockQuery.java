@@ -0,0 +1,119 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.datafixers.util.Either;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.command.argument.BlockArgumentParser;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.entry.RegistryEntryList;
+import net.minecraft.state.property.Property;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * What a search target matches: a plain block, a block with property filters
+ * such as {@code minecraft:wheat[age=7]}, or a block tag such as
+ * {@code #minecraft:logs[axis=y]}. Uses the vanilla block argument syntax.
+ *
+ * Queries are only evaluated while compiling a {@link StateLookup}, never per cell.
+ */
+public class BlockQuery {
+    private final String source;
+    private final Predicate<BlockState> predicate;
+    private final Block displayBlock;
+    // Set only for queries that match every state of one block
+    private final Block plainBlock;
+
+    private BlockQuery(String source, Predicate<BlockState> predicate, Block displayBlock, Block plainBlock) {
+        this.source = source;
+        this.predicate = predicate;
+        this.displayBlock = displayBlock;
+        this.plainBlock = plainBlock;
+    }
+
+    public static BlockQuery of(Block block) {
+        return new BlockQuery(Registries.BLOCK.getId(block).toString(), state -> state.isOf(block), block, block);
+    }
+
+    /**
+     * Parse a block id, block state or tag using the same syntax as vanilla commands.
+     */
+    public static BlockQuery parse(String input) throws CommandSyntaxException {
+        Either<BlockArgumentParser.BlockResult, BlockArgumentParser.TagResult> result =
+                BlockArgumentParser.blockOrTag(Registries.BLOCK, input, false);
+        return result.map(
+            blockResult -> fromBlock(input, blockResult),
+            tagResult -> fromTag(input, tagResult)
+        );
+    }
+
+    private static BlockQuery fromBlock(String input, BlockArgumentParser.BlockResult result) {
+        Block block = result.blockState().getBlock();
+        Map<Property<?>, Comparable<?>> properties = result.properties();
+        if (properties.isEmpty()) {
+            return of(block);
+        }
+        Predicate<BlockState> predicate = state -> {
+            if (!state.isOf(block)) return false;
+            for (Map.Entry<Property<?>, Comparable<?>> entry : properties.entrySet()) {
+                if (!state.get(entry.getKey()).equals(entry.getValue())) return false;
+            }
+            return true;
+        };
+        return new BlockQuery(input, predicate, block, null);
+    }
+
+    private static BlockQuery fromTag(String input, BlockArgumentParser.TagResult result) {
+        RegistryEntryList<Block> tag = result.tag();
+        Map<String, String> properties = result.vagueProperties();
+        Predicate<BlockState> predicate = state -> {
+            if (!tag.contains(state.getRegistryEntry())) return false;
+            // Tag members do not share property objects, so match properties by name
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                Property<?> property = state.getBlock().getStateManager().getProperty(entry.getKey());
+                if (property == null) return false;
+                Comparable<?> value = property.parse(entry.getValue()).orElse(null);
+                if (value == null || !state.get(property).equals(value)) return false;
+            }
+            return true;
+        };
+        Block displayBlock = tag.stream().findFirst().map(RegistryEntry::value).orElse(Blocks.BARRIER);
+        return new BlockQuery(input, predicate, displayBlock, null);
+    }
+
+    public boolean test(BlockState state) {
+        return predicate.test(state);
+    }
+
+    /**
+     * The text this query was parsed from, or the block id for plain blocks.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Block used for the HUD icon; the first tag member for tag queries.
+     */
+    public Block getDisplayBlock() {
+        return displayBlock;
+    }
+
+    /**
+     * Name shown in the HUD: the block name for plain blocks, the query text otherwise.
+     */
+    public String getDisplayName() {
+        return plainBlock != null ? plainBlock.getName().getString() : source;
+    }
+
+    /**
+     * Whether this query is exactly "every state of this block".
+     */
+    public boolean isBlock(Block block) {
+        return plainBlock == block;
+    }
+}
@@ -0,0 +1,303 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Persistent per-chunk store of block search hits, grouped by search target.
+ *
+ * Chunks are scanned once when they load and evicted when they unload, so the
+ * list of found blocks can be rebuilt from the index at any time without
+ * touching world data again. Single block changes are patched in place; the
+ * first change in a chunk maps its hits to their slots, so that one and all
+ * later changes there cost a hash lookup rather than a pass over the chunk.
+ *
+ * Hits are kept as packed positions, and counted per chunk and section in a
+ * {@link DensityGrid} as they come and go. Only used from the client thread.
+ */
+public class BlockSearchIndex {
+    // Slot lookups return this for positions that are not a hit
+    private static final int NO_SLOT = -1;
+
+    private final Map<Long, ChunkHits> chunks = new HashMap<>();
+    private final DensityGrid density = new DensityGrid();
+    private int targetCount = 1;
+    // Bumped on every change, so derived data can tell whether it is out of date
+    private int version = 0;
+
+    /**
+     * Drop all hits and prepare for a new set of targets.
+     */
+    public void reset(int targetCount) {
+        chunks.clear();
+        version++;
+        this.targetCount = targetCount;
+        density.reset(targetCount);
+    }
+
+    /**
+     * Replace the hits of a chunk.
+     *
+     * @param hitsByTarget one list of positions per target, in target order
+     */
+    public void put(ChunkPos chunkPos, List<PositionList> hitsByTarget) {
+        List<PositionList> lists = new ArrayList<>(targetCount);
+        for (int t = 0; t < targetCount; t++) {
+            // Scan results are handed over, not shared, so they can be kept as-is
+            lists.add(t < hitsByTarget.size() ? hitsByTarget.get(t) : new PositionList());
+        }
+        chunks.put(chunkPos.toLong(), new ChunkHits(lists));
+        version++;
+        density.set(chunkPos, lists);
+    }
+
+    /**
+     * Move a single position in an already indexed chunk to the given target,
+     * or remove it when target is StateLookup.NONE.
+     *
+     * @return true if the index changed
+     */
+    public boolean update(BlockPos pos, int target) {
+        ChunkHits chunk = chunks.get(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (chunk == null) return false; // Not indexed yet, the pending chunk scan will see the change
+        long packed = pos.asLong();
+        Long2IntOpenHashMap slots = chunk.slots(targetCount);
+        int current = slots.get(packed);
+        int currentTarget = current != NO_SLOT ? current % targetCount : StateLookup.NONE;
+        if (currentTarget == target) return false;
+        if (current != NO_SLOT) {
+            PositionList hits = chunk.lists.get(currentTarget);
+            int slot = current / targetCount;
+            hits.removeAt(slot);
+            slots.remove(packed);
+            if (slot < hits.size()) {
+                // The last hit was moved into the freed slot
+                slots.put(hits.get(slot), slot * targetCount + currentTarget);
+            }
+            density.add(packed, currentTarget, -1);
+        }
+        if (target >= 0 && target < chunk.lists.size()) {
+            PositionList hits = chunk.lists.get(target);
+            hits.add(packed);
+            slots.put(packed, (hits.size() - 1) * targetCount + target);
+            density.add(packed, target, 1);
+        }
+        version++;
+        return true;
+    }
+
+    public void remove(ChunkPos chunkPos) {
+        if (chunks.remove(chunkPos.toLong()) != null) {
+            version++;
+        }
+        density.remove(chunkPos);
+    }
+
+    public boolean contains(ChunkPos chunkPos) {
+        return chunks.containsKey(chunkPos.toLong());
+    }
+
+    public void clear() {
+        chunks.clear();
+        version++;
+        density.clear();
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public DensityGrid getDensity() {
+        return density;
+    }
+
+    /**
+     * Size the density grid for chunks within a radius of the player, counting
+     * every indexed chunk again if it had to be resized.
+     */
+    public void fitDensity(int radius) {
+        if (!density.fitRadius(radius)) return;
+        for (Map.Entry<Long, ChunkHits> entry : chunks.entrySet()) {
+            density.set(new ChunkPos(entry.getKey()), entry.getValue().lists);
+        }
+    }
+
+    /**
+     * Collect the nearest indexed hits around a chunk, per target, in true
+     * nearest-first order.
+     *
+     * Chunks are visited in order of their closest possible distance. A chunk's
+     * hits are only sorted once the merge frontier reaches that distance, and a
+     * k-way merge over the sorted chunks stops as soon as the limit is reached,
+     * so the full result set is never sorted.
+     *
+     * @param radius chunk radius around the center chunk
+     * @param limit maximum number of positions returned per target
+     */
+    public List<PositionList> query(ChunkPos center, BlockPos from, int radius, int limit) {
+        List<PositionList> results = new ArrayList<>(targetCount);
+        for (int t = 0; t < targetCount; t++) {
+            results.add(new PositionList());
+        }
+        if (chunks.isEmpty() || limit <= 0) return results;
+
+        // Indexed chunks in range, ordered by the distance to their nearest column
+        List<ChunkEntry> inRange = new ArrayList<>();
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                int x = center.x + dx;
+                int z = center.z + dz;
+                ChunkHits chunk = chunks.get(ChunkPos.toLong(x, z));
+                if (chunk != null) {
+                    inRange.add(new ChunkEntry(chunk.lists, lowerBound(x, z, from)));
+                }
+            }
+        }
+        inRange.sort((a, b) -> Integer.compare(a.lowerBound, b.lowerBound));
+
+        for (int t = 0; t < targetCount; t++) {
+            mergeNearest(inRange, t, from, limit, results.get(t));
+        }
+        return results;
+    }
+
+    /**
+     * Copy every indexed hit around a chunk, unordered, so it can be processed
+     * off the client thread.
+     *
+     * @param radius chunk radius around the center chunk
+     * @return one array of packed positions per target
+     */
+    public long[][] collect(ChunkPos center, int radius) {
+        int[] counts = new int[targetCount];
+        List<ChunkHits> inRange = new ArrayList<>();
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                ChunkHits chunk = chunks.get(ChunkPos.toLong(center.x + dx, center.z + dz));
+                if (chunk == null) continue;
+                inRange.add(chunk);
+                for (int t = 0; t < targetCount; t++) {
+                    counts[t] += chunk.lists.get(t).size();
+                }
+            }
+        }
+        long[][] positions = new long[targetCount][];
+        for (int t = 0; t < targetCount; t++) {
+            positions[t] = new long[counts[t]];
+            int n = 0;
+            for (ChunkHits chunk : inRange) {
+                PositionList hits = chunk.lists.get(t);
+                for (int i = 0; i < hits.size(); i++) {
+                    positions[t][n++] = hits.get(i);
+                }
+            }
+        }
+        return positions;
+    }
+
+    private static void mergeNearest(List<ChunkEntry> inRange, int target, BlockPos from, int limit, PositionList out) {
+        PriorityQueue<Cursor> frontier = new PriorityQueue<>((a, b) -> Integer.compare(a.distance(), b.distance()));
+        int next = 0;
+        while (out.size() < limit) {
+            // Admit every chunk that could still hold something closer than the frontier's best
+            while (next < inRange.size()
+                    && (frontier.isEmpty() || inRange.get(next).lowerBound <= frontier.peek().distance())) {
+                ChunkEntry entry = inRange.get(next++);
+                if (target >= entry.lists.size()) continue;
+                PositionList hits = entry.lists.get(target);
+                if (hits.isEmpty()) continue;
+                frontier.add(new Cursor(hits.sortedByDistance(from.getX(), from.getY(), from.getZ())));
+            }
+            Cursor nearest = frontier.poll();
+            if (nearest == null) break;
+            out.add(nearest.current(), nearest.distance());
+            if (nearest.advance()) {
+                frontier.add(nearest);
+            }
+        }
+    }
+
+    /**
+     * Smallest possible squared distance from a position to any block in a chunk column.
+     */
+    private static int lowerBound(int chunkX, int chunkZ, BlockPos from) {
+        int minX = chunkX << 4;
+        int minZ = chunkZ << 4;
+        int dx = Math.max(0, Math.max(minX - from.getX(), from.getX() - (minX + 15)));
+        int dz = Math.max(0, Math.max(minZ - from.getZ(), from.getZ() - (minZ + 15)));
+        return dx * dx + dz * dz;
+    }
+
+    private record ChunkEntry(List<PositionList> lists, int lowerBound) {
+    }
+
+    /**
+     * One chunk's hits per target, and once a block in it changed, the slot of
+     * every hit as slot * targetCount + target.
+     */
+    private static final class ChunkHits {
+        private final List<PositionList> lists;
+        private Long2IntOpenHashMap slots = null;
+
+        ChunkHits(List<PositionList> lists) {
+            this.lists = lists;
+        }
+
+        Long2IntOpenHashMap slots(int targetCount) {
+            if (slots == null) {
+                int total = 0;
+                for (PositionList hits : lists) {
+                    total += hits.size();
+                }
+                slots = new Long2IntOpenHashMap(total);
+                slots.defaultReturnValue(NO_SLOT);
+                for (int t = 0; t < lists.size(); t++) {
+                    PositionList hits = lists.get(t);
+                    for (int i = 0; i < hits.size(); i++) {
+                        slots.put(hits.get(i), i * targetCount + t);
+                    }
+                }
+            }
+            return slots;
+        }
+    }
+
+    /**
+     * One chunk's hits for a target, sorted by distance, with a read position.
+     */
+    private static class Cursor {
+        private final PositionList sorted;
+        private int position = 0;
+
+        Cursor(PositionList sorted) {
+            this.sorted = sorted;
+        }
+
+        long current() {
+            return sorted.get(position);
+        }
+
+        int distance() {
+            return sorted.getDistanceSq(position);
+        }
+
+        boolean advance() {
+            return ++position < sorted.size();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+import org.bookwormpi.clientsidetesting.client.utils.BackgroundExecutor;
+import org.bookwormpi.clientsidetesting.client.utils.BlockSearchCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scans whole chunk columns, splitting batches into tasks on the
+ * {@link BackgroundExecutor}, so scan work runs at the priority it was
+ * requested with and no worker sits blocked waiting on another pool.
+ *
+ * Chunks are first snapshotted on the client thread; background tasks only ever
+ * see snapshots, never live chunk data that chunk packets may be rewriting.
+ * Sections unchanged since they were last scanned for the same targets are
+ * taken from {@link BlockSearchCache} instead of being copied and scanned again.
+ * Sections outside the search's {@link ScanBand} are skipped altogether. The
+ * cache always holds every hit of a section; exposed-only searches filter them
+ * with an {@link ExposureMask} as they scan.
+ */
+public class ChunkScanner {
+    // Fewest chunks worth a task of their own
+    private static final int CHUNKS_PER_TASK = 4;
+    // Thread time spent scanning chunks, summed over all worker threads
+    private static final LongAdder SCAN_NANOS = new LongAdder();
+
+    /**
+     * Total time worker threads have spent scanning since startup. Several threads
+     * scanning at once each add their own time, so this grows faster than the clock.
+     */
+    public static long getScanNanos() {
+        return SCAN_NANOS.sum();
+    }
+
+    /**
+     * The sections of one chunk that can contain a target, copied for off-thread
+     * scanning, and the cached hits of those that need no scan.
+     */
+    public record ChunkSnapshot(ChunkPos pos, int bottomY, ScanBand.ChunkBand band, List<PaletteScanner.SectionSnapshot> sections, List<List<PositionList>> cachedHits) {
+    }
+
+    /**
+     * Snapshot chunks for scanning. Must be called on the client thread. Only the
+     * palettes are inspected here; packed data is copied just for sections whose
+     * palette holds a target, so this is cheap for typical searches.
+     */
+    public static List<ChunkSnapshot> snapshotAll(List<WorldChunk> chunks, StateLookup lookup) {
+        PaletteScanner scanner = new PaletteScanner(lookup);
+        List<ChunkSnapshot> snapshots = new ArrayList<>(chunks.size());
+        for (WorldChunk chunk : chunks) {
+            snapshots.add(snapshot(chunk, scanner));
+        }
+        return snapshots;
+    }
+
+    public static ChunkSnapshot snapshot(WorldChunk chunk, PaletteScanner scanner) {
+        ChunkSection[] chunkSections = chunk.getSectionArray();
+        long chunkKey = chunk.getPos().toLong();
+        List<PaletteScanner.SectionSnapshot> sections = new ArrayList<>();
+        List<List<PositionList>> cachedHits = new ArrayList<>();
+        ScanBand.ChunkBand band = scanner.getLookup().getBand().resolve(chunk);
+        ExposureMask.ChunkBorders borders = null;
+        for (int sectionY = 0; sectionY < chunkSections.length; sectionY++) {
+            // Outside the band nothing is wanted, not even the palette
+            if (!band.overlapsSection(chunk.getBottomY() + sectionY * 16)) continue;
+            // Palette pre-filter skips sections that cannot contain any target
+            short[] paletteTargets = scanner.paletteTargets(chunkSections[sectionY]);
+            if (paletteTargets == null) continue;
+            long version = BlockSearchCache.getVersion(chunkKey, sectionY);
+            if (scanner.getLookup().isExposedOnly()) {
+                // Exposure depends on the neighbours too, so cached hits alone are not enough
+                if (borders == null) {
+                    borders = ExposureMask.borders(chunk);
+                }
+                sections.add(scanner.snapshot(chunkSections[sectionY], sectionY, paletteTargets, version,
+                    borders.capture(chunkSections[sectionY], sectionY)));
+                continue;
+            }
+            List<PositionList> cached = BlockSearchCache.getCachedResults(chunkKey, sectionY, version, scanner.getLookup());
+            if (cached != null) {
+                cachedHits.add(cached);
+            } else {
+                sections.add(scanner.snapshot(chunkSections[sectionY], sectionY, paletteTargets, version));
+            }
+        }
+        return new ChunkSnapshot(chunk.getPos(), chunk.getBottomY(), band, sections, cachedHits);
+    }
+
+    /**
+     * Scan snapshots in parallel on the background executor, one task per group
+     * of chunks and about as many groups as there are worker threads. Safe to
+     * call from any thread. A cancelled scan completes with incomplete results.
+     *
+     * @param token checked before each chunk, or null if the scan cannot be cancelled
+     * @return hits per chunk, one list per target; fails if any task was rejected or failed
+     */
+    public static CompletableFuture<Map<ChunkPos, List<PositionList>>> scanAll(List<ChunkSnapshot> chunks, StateLookup lookup,
+                                                                              ScanToken token, BackgroundExecutor.Priority priority) {
+        Map<ChunkPos, List<PositionList>> results = new ConcurrentHashMap<>();
+        if (chunks.isEmpty()) return CompletableFuture.completedFuture(results);
+        int groups = Math.clamp(chunks.size() / CHUNKS_PER_TASK, 1, Math.max(1, BackgroundExecutor.getThreadCount()));
+        PaletteScanner scanner = new PaletteScanner(lookup);
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[groups];
+        for (int g = 0; g < groups; g++) {
+            int from = chunks.size() * g / groups;
+            int to = chunks.size() * (g + 1) / groups;
+            tasks[g] = BackgroundExecutor.run(priority, () -> scanRange(chunks, from, to, scanner, results, token));
+        }
+        return CompletableFuture.allOf(tasks).thenApply(done -> results);
+    }
+
+    private static void scanRange(List<ChunkSnapshot> chunks, int from, int to, PaletteScanner scanner,
+                                  Map<ChunkPos, List<PositionList>> results, ScanToken token) {
+        long start = System.nanoTime();
+        for (int i = from; i < to; i++) {
+            if (token != null && token.isCancelled()) break; // Superseded by a newer scan
+            ChunkSnapshot chunk = chunks.get(i);
+            results.put(chunk.pos(), scanChunk(chunk, scanner));
+        }
+        SCAN_NANOS.add(System.nanoTime() - start);
+    }
+
+    /**
+     * Scan one chunk snapshot in a single pass over its sections. Each scanned
+     * section's hits are added to the cache.
+     *
+     * @return one list of hits per target, in target order
+     */
+    public static List<PositionList> scanChunk(ChunkSnapshot chunk, PaletteScanner scanner) {
+        ChunkPos chunkPos = chunk.pos();
+        int startX = chunkPos.getStartX();
+        int startZ = chunkPos.getStartZ();
+        int targetCount = scanner.getLookup().getTargetCount();
+        List<PositionList> candidates = new ArrayList<>(targetCount);
+        for (int t = 0; t < targetCount; t++) {
+            candidates.add(new PositionList());
+        }
+        for (List<PositionList> cached : chunk.cachedHits()) {
+            for (int t = 0; t < targetCount; t++) {
+                candidates.get(t).addAll(cached.get(t));
+            }
+        }
+        for (PaletteScanner.SectionSnapshot section : chunk.sections()) {
+            int yOffset = (section.sectionY() * 16) + chunk.bottomY();
+            List<PositionList> sectionHits = new ArrayList<>(targetCount);
+            for (int t = 0; t < targetCount; t++) {
+                sectionHits.add(new PositionList());
+            }
+            long[] exposed = section.exposure() != null ? section.exposure().exposedCells(section.data(), section.bits()) : null;
+            scanner.scan(section, (cell, target) -> {
+                long pos = BlockPos.asLong(
+                    startX + (cell & 15),
+                    yOffset + (cell >> 8),
+                    startZ + ((cell >> 4) & 15)
+                );
+                sectionHits.get(target).add(pos);
+                if (exposed != null && ExposureMask.isSet(exposed, cell)) {
+                    candidates.get(target).add(pos);
+                }
+            });
+            if (exposed == null) {
+                for (int t = 0; t < targetCount; t++) {
+                    candidates.get(t).addAll(sectionHits.get(t));
+                }
+            }
+            BlockSearchCache.cacheResults(chunkPos.toLong(), section.sectionY(), section.version(), scanner.getLookup(), sectionHits);
+        }
+        if (!scanner.getLookup().getBand().isUnbounded()) {
+            // Sections at the band's edges were scanned whole
+            for (PositionList hits : candidates) {
+                chunk.band().filter(hits);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Check the cache on a loaded chunk. Each section is scanned and cached for
+     * the lookup, then every lookup with one of its targets dropped must either
+     * miss the cache or get what a fresh scan for it finds. Blocks matching
+     * several targets count for another target once one is dropped, so cached
+     * hits that ignore the rest of the target list show up here. Must be called
+     * on the client thread.
+     *
+     * @return null if the cache agrees with fresh scans, otherwise the first mismatch
+     */
+    public static String verifyCache(WorldChunk chunk, StateLookup lookup) {
+        List<StateLookup> reduced = new ArrayList<>();
+        for (int t = 0; t < lookup.getTargetCount() && lookup.getTargetCount() > 1; t++) {
+            List<SearchTarget> targets = new ArrayList<>(lookup.getTargets());
+            targets.remove(t);
+            reduced.add(new StateLookup(targets, lookup.getBand(), lookup.isExposedOnly()));
+        }
+        long chunkKey = chunk.getPos().toLong();
+        for (int sectionY = 0; sectionY < chunk.getSectionArray().length; sectionY++) {
+            long version = BlockSearchCache.getVersion(chunkKey, sectionY);
+            if (version == BlockSearchCache.NO_VERSION) continue;
+            BlockSearchCache.cacheResults(chunkKey, sectionY, version, lookup, scanSection(chunk, sectionY, lookup));
+            for (StateLookup other : reduced) {
+                List<PositionList> cached = BlockSearchCache.getCachedResults(chunkKey, sectionY, version, other);
+                if (cached == null) continue;
+                List<PositionList> expected = scanSection(chunk, sectionY, other);
+                for (int t = 0; t < expected.size(); t++) {
+                    if (!Arrays.equals(sortedPositions(expected.get(t)), sortedPositions(cached.get(t)))) {
+                        return "chunk " + chunk.getPos() + " section " + sectionY + ", " + other.getTargets().get(t).query().getSource()
+                            + ": scan found " + expected.get(t).size() + ", cache held " + cached.get(t).size();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // All hits of one live section, bypassing the cache
+    private static List<PositionList> scanSection(WorldChunk chunk, int sectionY, StateLookup lookup) {
+        PaletteScanner scanner = new PaletteScanner(lookup);
+        List<PositionList> hits = new ArrayList<>(lookup.getTargetCount());
+        for (int t = 0; t < lookup.getTargetCount(); t++) {
+            hits.add(new PositionList());
+        }
+        ChunkSection section = chunk.getSectionArray()[sectionY];
+        short[] paletteTargets = scanner.paletteTargets(section);
+        if (paletteTargets == null) return hits;
+        int startX = chunk.getPos().getStartX();
+        int startZ = chunk.getPos().getStartZ();
+        int yOffset = (sectionY * 16) + chunk.getBottomY();
+        scanner.scan(scanner.snapshot(section, sectionY, paletteTargets, BlockSearchCache.NO_VERSION), (cell, target) ->
+            hits.get(target).add(BlockPos.asLong(startX + (cell & 15), yOffset + (cell >> 8), startZ + ((cell >> 4) & 15))));
+        return hits;
+    }
+
+    private static long[] sortedPositions(PositionList list) {
+        long[] positions = new long[list.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = list.get(i);
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+}
@@ -0,0 +1,205 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hit counts per chunk and target, and per chunk section, for the heatmap.
+ *
+ * Counts live in flat primitive arrays over a square window of chunks, sized
+ * by {@link #fitRadius} to the next power of two that holds the whole search
+ * diameter. Chunk coordinates wrap around the window, so the slots follow the
+ * player as chunks load and unload without the grid ever being shifted; each
+ * slot remembers which chunk it holds. The counts are taken from
+ * the hit lists the scans already produce, so keeping them costs no extra
+ * pass over world data.
+ *
+ * Kept in step with {@link BlockSearchIndex}. Only used from the client thread.
+ */
+public class DensityGrid {
+    // Chunks per side at least and at most; powers of two so coordinates wrap with a mask.
+    // No client holds chunks further than the largest view distance, well within the maximum.
+    private static final int MIN_SIZE = 64;
+    private static final int MAX_SIZE = 256;
+    // Not a key any loaded chunk can have
+    private static final long NO_CHUNK = Long.MIN_VALUE;
+
+    private int size = MIN_SIZE;
+    private int mask = MIN_SIZE - 1;
+    private int slots = MIN_SIZE * MIN_SIZE;
+    private long[] keys = new long[slots];
+    private int[] totals = new int[slots];
+    // slot * targetCount + target
+    private int[] counts = new int[slots];
+    // slot * sectionCount + section; a section holds at most 4096 hits
+    private short[] sectionCounts = new short[0];
+    private int targetCount = 1;
+    private int bottomY = 0;
+    private int sectionCount = 0;
+
+    public DensityGrid() {
+        Arrays.fill(keys, NO_CHUNK);
+    }
+
+    /**
+     * Drop all counts and prepare for a new set of targets.
+     */
+    public void reset(int targetCount) {
+        this.targetCount = targetCount;
+        counts = new int[slots * targetCount];
+        clear();
+    }
+
+    /**
+     * Size the window so no two chunks within a radius of the center share a
+     * slot, dropping all counts if the size changed.
+     *
+     * @return true if the window was resized and the counts need setting again
+     */
+    public boolean fitRadius(int radius) {
+        int diameter = Math.clamp(2L * radius + 1, MIN_SIZE, MAX_SIZE);
+        int fitted = Integer.highestOneBit(diameter - 1) << 1;
+        if (fitted == size) return false;
+        size = fitted;
+        mask = fitted - 1;
+        slots = fitted * fitted;
+        keys = new long[slots];
+        totals = new int[slots];
+        counts = new int[slots * targetCount];
+        sectionCounts = new short[slots * sectionCount];
+        clear();
+        return true;
+    }
+
+    /**
+     * Set the world's vertical extent, dropping all counts if it changed.
+     */
+    public void setHeight(int bottomY, int sectionCount) {
+        if (bottomY == this.bottomY && sectionCount == this.sectionCount) return;
+        this.bottomY = bottomY;
+        this.sectionCount = sectionCount;
+        sectionCounts = new short[slots * sectionCount];
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(keys, NO_CHUNK);
+        Arrays.fill(totals, 0);
+        Arrays.fill(counts, 0);
+        Arrays.fill(sectionCounts, (short) 0);
+    }
+
+    private int slot(int chunkX, int chunkZ) {
+        return ((chunkZ & mask) * size) + (chunkX & mask);
+    }
+
+    /**
+     * Replace the counts of a chunk, taking over its slot from whatever chunk
+     * held it before.
+     *
+     * @param hitsByTarget one list of positions per target, in target order
+     */
+    public void set(ChunkPos chunkPos, List<PositionList> hitsByTarget) {
+        int slot = slot(chunkPos.x, chunkPos.z);
+        clearSlot(slot);
+        keys[slot] = chunkPos.toLong();
+        for (int t = 0; t < targetCount && t < hitsByTarget.size(); t++) {
+            PositionList hits = hitsByTarget.get(t);
+            counts[slot * targetCount + t] = hits.size();
+            totals[slot] += hits.size();
+            for (int i = 0; i < hits.size(); i++) {
+                int section = (hits.getY(i) - bottomY) >> 4;
+                if (section >= 0 && section < sectionCount) {
+                    sectionCounts[slot * sectionCount + section]++;
+                }
+            }
+        }
+    }
+
+    public void remove(ChunkPos chunkPos) {
+        int slot = slot(chunkPos.x, chunkPos.z);
+        if (keys[slot] == chunkPos.toLong()) {
+            clearSlot(slot);
+        }
+    }
+
+    /**
+     * Count one hit more or less after a single block change.
+     */
+    public void add(long pos, int target, int delta) {
+        int chunkX = BlockPos.unpackLongX(pos) >> 4;
+        int chunkZ = BlockPos.unpackLongZ(pos) >> 4;
+        int slot = slot(chunkX, chunkZ);
+        if (keys[slot] != ChunkPos.toLong(chunkX, chunkZ) || target < 0 || target >= targetCount) return;
+        counts[slot * targetCount + target] += delta;
+        totals[slot] += delta;
+        int section = (BlockPos.unpackLongY(pos) - bottomY) >> 4;
+        if (section >= 0 && section < sectionCount) {
+            sectionCounts[slot * sectionCount + section] += (short) delta;
+        }
+    }
+
+    private void clearSlot(int slot) {
+        keys[slot] = NO_CHUNK;
+        totals[slot] = 0;
+        Arrays.fill(counts, slot * targetCount, (slot + 1) * targetCount, 0);
+        Arrays.fill(sectionCounts, slot * sectionCount, (slot + 1) * sectionCount, (short) 0);
+    }
+
+    /**
+     * Whether a chunk has been counted, as opposed to holding nothing.
+     */
+    public boolean contains(int chunkX, int chunkZ) {
+        return keys[slot(chunkX, chunkZ)] == ChunkPos.toLong(chunkX, chunkZ);
+    }
+
+    public int getTotal(int chunkX, int chunkZ) {
+        int slot = slot(chunkX, chunkZ);
+        return keys[slot] == ChunkPos.toLong(chunkX, chunkZ) ? totals[slot] : 0;
+    }
+
+    public int getCount(int chunkX, int chunkZ, int target) {
+        int slot = slot(chunkX, chunkZ);
+        return keys[slot] == ChunkPos.toLong(chunkX, chunkZ) ? counts[slot * targetCount + target] : 0;
+    }
+
+    public int getSectionCount(int chunkX, int chunkZ, int section) {
+        int slot = slot(chunkX, chunkZ);
+        return keys[slot] == ChunkPos.toLong(chunkX, chunkZ) ? sectionCounts[slot * sectionCount + section] : 0;
+    }
+
+    /**
+     * Highest chunk total within a square radius, for scaling the heatmap.
+     */
+    public int getMaxTotal(int centerX, int centerZ, int radius) {
+        int max = 0;
+        for (int dz = -radius; dz <= radius; dz++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                max = Math.max(max, getTotal(centerX + dx, centerZ + dz));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Chunks per side of the window.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    public int getBottomY() {
+        return bottomY;
+    }
+}
@@ -0,0 +1,273 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.collection.PaletteStorage;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.IdListPalette;
+import net.minecraft.world.chunk.Palette;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.Arrays;
+
+/**
+ * Finds the cells of a section that touch air or a fluid, i.e. the blocks a
+ * player could see or reach.
+ *
+ * Each section is turned into a 4096-bit mask of open cells, one bit per cell in
+ * the vanilla (y << 8) | (z << 4) | x order, held in 64 longs. A cell is exposed
+ * if the mask shifted by one step in any of the six directions has its bit set,
+ * so the whole section is tested with a few dozen word operations per long
+ * instead of six block state lookups per cell. Cells on the section's faces take
+ * their outside neighbour from the adjacent section, of which only the touching
+ * layer is decoded, straight into a 256-bit face mask; neighbouring sections are
+ * never copied. The section itself is read from its scan snapshot.
+ *
+ * Capturing reads live chunk data and must happen on the client thread; the
+ * captured {@link Neighbourhood} is immutable and can be evaluated anywhere.
+ */
+public class ExposureMask {
+    public static final int WORDS = PaletteScanner.SECTION_VOLUME / 64;
+    // Bits of one word that hold cells with x == 0, and with x == 15
+    private static final long X_MIN = 0x0001000100010001L;
+    private static final long X_MAX = 0x8000800080008000L;
+    // Bits of the first and last word of a layer that hold cells with z == 0, and with z == 15
+    private static final long Z_MIN = 0x000000000000FFFFL;
+    private static final long Z_MAX = 0xFFFF000000000000L;
+    // Faces of a section, each a 256-bit mask of FACE_WORDS longs
+    private static final int DOWN = 0, UP = 1, NORTH = 2, SOUTH = 3, WEST = 4, EAST = 5;
+    private static final int FACES = 6;
+    private static final int FACE_WORDS = 4;
+    // Per face, the cells on the section's own face and the touching cells of the section across it, in the same order
+    private static final int[][] OWN_CELLS = new int[FACES][256];
+    private static final int[][] NEIGHBOUR_CELLS = new int[FACES][256];
+
+    static {
+        for (int a = 0; a < 16; a++) {
+            for (int b = 0; b < 16; b++) {
+                // a and b run over the two axes of each face
+                int i = (a << 4) | b;
+                OWN_CELLS[DOWN][i] = (a << 4) | b;                 // y = 0, z = a, x = b
+                NEIGHBOUR_CELLS[DOWN][i] = (15 << 8) | (a << 4) | b;
+                OWN_CELLS[UP][i] = (15 << 8) | (a << 4) | b;       // y = 15
+                NEIGHBOUR_CELLS[UP][i] = (a << 4) | b;
+                OWN_CELLS[NORTH][i] = (a << 8) | b;                // z = 0, y = a, x = b
+                NEIGHBOUR_CELLS[NORTH][i] = (a << 8) | (15 << 4) | b;
+                OWN_CELLS[SOUTH][i] = (a << 8) | (15 << 4) | b;    // z = 15
+                NEIGHBOUR_CELLS[SOUTH][i] = (a << 8) | b;
+                OWN_CELLS[WEST][i] = (a << 8) | (b << 4);          // x = 0, y = a, z = b
+                NEIGHBOUR_CELLS[WEST][i] = (a << 8) | (b << 4) | 15;
+                OWN_CELLS[EAST][i] = (a << 8) | (b << 4) | 15;     // x = 15
+                NEIGHBOUR_CELLS[EAST][i] = (a << 8) | (b << 4);
+            }
+        }
+    }
+
+    // Raw state id -> open, built on first use; state ids do not change once registries are frozen
+    private static volatile boolean[] openByStateId = null;
+
+    /**
+     * What the mask needs from one section: whether each palette id is open and
+     * the packed palette indices.
+     */
+    record Source(boolean[] openIds, long[] data, int bits) {
+    }
+
+    /**
+     * Which palette ids of a section are open, and the open cells on the
+     * touching layers of the six sections around it. Together with the
+     * section's packed data from its scan snapshot that is all the test needs.
+     */
+    public record Neighbourhood(boolean[] openIds, long[] faces) {
+        /**
+         * The mask of cells that have at least one open neighbour.
+         *
+         * @param data the section's packed palette indices, snapshotted along with this
+         */
+        public long[] exposedCells(long[] data, int bits) {
+            return ExposureMask.exposedCells(new Source(openIds, data, bits), faces);
+        }
+    }
+
+    /**
+     * Start capturing sections of a chunk. Client thread only.
+     */
+    public static ChunkBorders borders(WorldChunk chunk) {
+        return new ChunkBorders(chunk);
+    }
+
+    /**
+     * A chunk and its four horizontal neighbours, looked up once and shared by
+     * every section captured from the chunk. Only valid until the client thread
+     * moves on, since the neighbours may unload.
+     */
+    public static final class ChunkBorders {
+        private final WorldChunk chunk;
+        private final WorldChunk north;
+        private final WorldChunk south;
+        private final WorldChunk west;
+        private final WorldChunk east;
+
+        private ChunkBorders(WorldChunk chunk) {
+            int chunkX = chunk.getPos().x;
+            int chunkZ = chunk.getPos().z;
+            var chunkManager = chunk.getWorld().getChunkManager();
+            this.chunk = chunk;
+            this.north = chunkManager.getWorldChunk(chunkX, chunkZ - 1);
+            this.south = chunkManager.getWorldChunk(chunkX, chunkZ + 1);
+            this.west = chunkManager.getWorldChunk(chunkX - 1, chunkZ);
+            this.east = chunkManager.getWorldChunk(chunkX + 1, chunkZ);
+        }
+
+        /**
+         * Capture the faces around one of the chunk's sections. Client thread only.
+         */
+        public Neighbourhood capture(ChunkSection section, int sectionIndex) {
+            long[] faces = new long[FACES * FACE_WORDS];
+            captureFace(faces, DOWN, chunk, sectionIndex - 1, false);
+            captureFace(faces, UP, chunk, sectionIndex + 1, true);
+            captureFace(faces, NORTH, north, sectionIndex, false);
+            captureFace(faces, SOUTH, south, sectionIndex, false);
+            captureFace(faces, WEST, west, sectionIndex, false);
+            captureFace(faces, EAST, east, sectionIndex, false);
+            return new Neighbourhood(openIds(section.getBlockStateContainer().data.palette()), faces);
+        }
+    }
+
+    /**
+     * Decode the layer of a section touching the captured one into a face mask.
+     * Below the world or in an unloaded chunk the face stays solid, so nothing
+     * there counts; cells facing a chunk that loads later are re-checked when it
+     * does. A missing or empty section is all air.
+     *
+     * @param openAbove whether a section above the top of the world counts as open sky
+     */
+    private static void captureFace(long[] faces, int face, WorldChunk chunk, int sectionIndex, boolean openAbove) {
+        if (chunk == null || sectionIndex < 0) return;
+        ChunkSection[] sections = chunk.getSectionArray();
+        if (sectionIndex >= sections.length) {
+            if (openAbove) Arrays.fill(faces, face * FACE_WORDS, (face + 1) * FACE_WORDS, -1L);
+            return;
+        }
+        ChunkSection section = sections[sectionIndex];
+        if (section == null || section.isEmpty()) {
+            Arrays.fill(faces, face * FACE_WORDS, (face + 1) * FACE_WORDS, -1L);
+            return;
+        }
+        PaletteStorage storage = section.getBlockStateContainer().data.storage();
+        boolean[] open = openIds(section.getBlockStateContainer().data.palette());
+        int[] cells = NEIGHBOUR_CELLS[face];
+        for (int i = 0; i < cells.length; i++) {
+            int id = storage.get(cells[i]);
+            if (id < open.length && open[id]) {
+                faces[face * FACE_WORDS + (i >>> 6)] |= 1L << i;
+            }
+        }
+    }
+
+    private static boolean[] openIds(Palette<BlockState> palette) {
+        if (palette instanceof IdListPalette) {
+            // Global palette ids are raw state ids already
+            return openByStateId();
+        }
+        boolean[] open = new boolean[palette.getSize()];
+        for (int id = 0; id < open.length; id++) {
+            open[id] = isOpen(palette.get(id));
+        }
+        return open;
+    }
+
+    private static boolean[] openByStateId() {
+        boolean[] table = openByStateId;
+        if (table == null) {
+            table = new boolean[Block.STATE_IDS.size()];
+            for (BlockState state : Block.STATE_IDS) {
+                int rawId = Block.getRawIdFromState(state);
+                if (rawId >= 0 && rawId < table.length) {
+                    table[rawId] = isOpen(state);
+                }
+            }
+            openByStateId = table;
+        }
+        return table;
+    }
+
+    public static boolean isOpen(BlockState state) {
+        return state.isAir() || !state.getFluidState().isEmpty();
+    }
+
+    /**
+     * Whether a cell index is set in a mask.
+     */
+    public static boolean isSet(long[] mask, int cell) {
+        return (mask[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    static long[] exposedCells(Source self, long[] faces) {
+        long[] open = openMask(self);
+        long[] exposed = new long[WORDS];
+        for (int w = 0; w < WORDS; w++) {
+            long previous = w > 0 ? open[w - 1] : 0L;
+            long next = w < WORDS - 1 ? open[w + 1] : 0L;
+            // Within a word x runs along 16-bit rows, so a one-bit shift is a step in x
+            long bits = ((open[w] << 1) & ~X_MIN)
+                | ((open[w] >>> 1) & ~X_MAX);
+            // A 16-bit shift is a step in z; rows at z == 0 or 15 would wrap into another layer
+            long fromLowerZ = (open[w] << 16) | (previous >>> 48);
+            long fromHigherZ = (open[w] >>> 16) | (next << 48);
+            bits |= (w & 3) == 0 ? fromLowerZ & ~Z_MIN : fromLowerZ;
+            bits |= (w & 3) == 3 ? fromHigherZ & ~Z_MAX : fromHigherZ;
+            // Four words make a layer, so a step in y is a whole word offset
+            if (w >= 4) bits |= open[w - 4];
+            if (w < WORDS - 4) bits |= open[w + 4];
+            exposed[w] = bits;
+        }
+        addFaces(exposed, faces);
+        return exposed;
+    }
+
+    /**
+     * Mark cells on the section's faces whose outside neighbour is open.
+     */
+    private static void addFaces(long[] exposed, long[] faces) {
+        for (int face = 0; face < FACES; face++) {
+            int[] cells = OWN_CELLS[face];
+            for (int i = 0; i < cells.length; i++) {
+                if ((faces[face * FACE_WORDS + (i >>> 6)] & (1L << i)) != 0) {
+                    exposed[cells[i] >>> 6] |= 1L << cells[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode a whole section into its mask of open cells. Same layout walk as
+     * the palette scan, setting a bit instead of reporting a match.
+     */
+    static long[] openMask(Source source) {
+        long[] mask = new long[WORDS];
+        boolean[] openIds = source.openIds();
+        int bits = source.bits();
+        if (bits == 0) {
+            if (openIds[0]) {
+                Arrays.fill(mask, -1L);
+            }
+            return mask;
+        }
+        long[] words = source.data();
+        int perWord = 64 / bits;
+        long valueMask = (1L << bits) - 1L;
+        int cell = 0;
+        for (int w = 0; w < words.length && cell < PaletteScanner.SECTION_VOLUME; w++) {
+            long word = words[w];
+            for (int j = 0; j < perWord && cell < PaletteScanner.SECTION_VOLUME; j++, cell++) {
+                int id = (int) (word & valueMask);
+                word >>>= bits;
+                if (id < openIds.length && openIds[id]) {
+                    mask[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+        return mask;
+    }
+}
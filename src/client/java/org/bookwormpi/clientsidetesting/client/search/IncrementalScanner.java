@@ -0,0 +1,268 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+import org.bookwormpi.clientsidetesting.client.utils.BlockSearchCache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Scans chunks on the client thread in small time-boxed steps.
+ *
+ * For clients that cannot spare a background thread. Each call to {@link #step}
+ * does at most a given number of nanoseconds of work and then returns, keeping a
+ * cursor over (chunk, section, cell) so the next call carries on where this one
+ * stopped. Finished chunks are handed out immediately, so results show up while
+ * the rest of the queue is still being worked through.
+ *
+ * Only chunk positions are kept between calls. The chunk under the cursor is
+ * looked up again for every slice, and dropped if it has unloaded since.
+ *
+ * Must only be used from the client thread.
+ */
+public class IncrementalScanner {
+    // Cells scanned between clock reads, small enough to stay close to the budget
+    private static final int CELLS_PER_SLICE = 1024;
+
+    private final PaletteScanner scanner;
+    private final Deque<ChunkPos> queue = new ArrayDeque<>();
+    private final Set<Long> queuedKeys = new HashSet<>();
+    private int queuedTotal = 0;
+    private int chunksDone = 0;
+
+    // Cursor: the chunk being scanned, the next section in it and the next cell in that section
+    private ChunkPos chunkPos = null;
+    private ScanBand.ChunkBand band = null;
+    private int sectionIndex = 0;
+    private int cell = 0;
+    private PaletteScanner.SectionSnapshot section = null;
+    private List<PositionList> sectionHits = null;
+    private long[] exposed = null;
+    private List<PositionList> hits = null;
+
+    public IncrementalScanner(StateLookup lookup) {
+        this.scanner = new PaletteScanner(lookup);
+    }
+
+    public StateLookup getLookup() {
+        return scanner.getLookup();
+    }
+
+    /**
+     * Queue chunks behind any already waiting. A chunk that is already queued or
+     * being scanned is not added again.
+     *
+     * @return the chunks that were actually added
+     */
+    public List<WorldChunk> enqueue(Collection<WorldChunk> chunks) {
+        List<WorldChunk> added = new ArrayList<>(chunks.size());
+        for (WorldChunk candidate : chunks) {
+            if (candidate.getPos().equals(chunkPos) || !queuedKeys.add(candidate.getPos().toLong())) continue;
+            queue.add(candidate.getPos());
+            added.add(candidate);
+            queuedTotal++;
+        }
+        return added;
+    }
+
+    /**
+     * Drop the queue and the cursor.
+     *
+     * @return the chunks that were queued or partly scanned
+     */
+    public List<ChunkPos> clear() {
+        List<ChunkPos> dropped = new ArrayList<>(getQueuedChunks());
+        if (chunkPos != null) dropped.add(chunkPos);
+        dropped.addAll(queue);
+        queue.clear();
+        queuedKeys.clear();
+        dropCursor();
+        queuedTotal = 0;
+        chunksDone = 0;
+        return dropped;
+    }
+
+    public boolean isIdle() {
+        return chunkPos == null && queue.isEmpty();
+    }
+
+    /**
+     * Scan until the budget runs out or the queue is empty.
+     *
+     * @param world the chunks are looked up in
+     * @param budgetNanos time this call may spend, checked between slices of cells
+     * @param onChunkDone receives each finished chunk with one list of hits per target
+     * @param onChunkDropped receives each chunk that unloaded before it was finished
+     * @return number of chunks finished by this call
+     */
+    public int step(World world, long budgetNanos, BiConsumer<ChunkPos, List<PositionList>> onChunkDone,
+                    Consumer<ChunkPos> onChunkDropped) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int finished = 0;
+        do {
+            if (chunkPos == null && !startNextChunk()) break;
+            WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkPos.x, chunkPos.z, false);
+            if (chunk == null) {
+                onChunkDropped.accept(chunkPos);
+                dropCursor();
+                continue;
+            }
+            if (advance(chunk)) {
+                onChunkDone.accept(chunkPos, hits);
+                chunkPos = null;
+                hits = null;
+                chunksDone++;
+                finished++;
+            }
+        } while (System.nanoTime() < deadline);
+        if (isIdle()) {
+            queuedTotal = 0;
+            chunksDone = 0;
+        }
+        return finished;
+    }
+
+    private boolean startNextChunk() {
+        chunkPos = queue.poll();
+        if (chunkPos == null) return false;
+        queuedKeys.remove(chunkPos.toLong());
+        band = null;
+        sectionIndex = 0;
+        cell = 0;
+        section = null;
+        hits = new ArrayList<>();
+        for (int t = 0; t < scanner.getLookup().getTargetCount(); t++) {
+            hits.add(new PositionList());
+        }
+        return true;
+    }
+
+    private void dropCursor() {
+        chunkPos = null;
+        section = null;
+        sectionHits = null;
+        exposed = null;
+        hits = null;
+    }
+
+    /**
+     * Scan one slice of cells, or skip one section that cannot hold a target.
+     *
+     * @param chunk the chunk under the cursor, as currently loaded
+     * @return true once the current chunk is complete
+     */
+    private boolean advance(WorldChunk chunk) {
+        if (band == null) {
+            band = scanner.getLookup().getBand().resolve(chunk);
+        }
+        ChunkSection[] sections = chunk.getSectionArray();
+        int targetCount = scanner.getLookup().getTargetCount();
+        if (section == null) {
+            if (sectionIndex >= sections.length) {
+                if (!scanner.getLookup().getBand().isUnbounded()) {
+                    for (PositionList list : hits) {
+                        band.filter(list);
+                    }
+                }
+                return true;
+            }
+            if (!band.overlapsSection(chunk.getBottomY() + sectionIndex * 16)) {
+                sectionIndex++;
+                return false;
+            }
+            // Palette pre-filter and cache, same as the background scan
+            short[] paletteTargets = scanner.paletteTargets(sections[sectionIndex]);
+            if (paletteTargets == null) {
+                sectionIndex++;
+                return false;
+            }
+            long chunkKey = chunk.getPos().toLong();
+            long version = BlockSearchCache.getVersion(chunkKey, sectionIndex);
+            // Exposure depends on the neighbours too, so exposed-only searches always scan
+            List<PositionList> cached = scanner.getLookup().isExposedOnly() ? null
+                : BlockSearchCache.getCachedResults(chunkKey, sectionIndex, version, scanner.getLookup());
+            if (cached != null) {
+                for (int t = 0; t < targetCount; t++) {
+                    hits.get(t).addAll(cached.get(t));
+                }
+                sectionIndex++;
+                return false;
+            }
+            section = scanner.snapshot(sections[sectionIndex], sectionIndex, paletteTargets, version);
+            // Neighbours are looked up per section, since no chunk is held between frames
+            exposed = scanner.getLookup().isExposedOnly()
+                ? ExposureMask.borders(chunk).capture(sections[sectionIndex], sectionIndex).exposedCells(section.data(), section.bits())
+                : null;
+            sectionHits = new ArrayList<>(targetCount);
+            for (int t = 0; t < targetCount; t++) {
+                sectionHits.add(new PositionList());
+            }
+            cell = 0;
+        }
+        int startX = chunk.getPos().getStartX();
+        int startZ = chunk.getPos().getStartZ();
+        int yOffset = (section.sectionY() * 16) + chunk.getBottomY();
+        int end = Math.min(cell + CELLS_PER_SLICE, PaletteScanner.SECTION_VOLUME);
+        List<PositionList> out = sectionHits;
+        long[] exposedCells = exposed;
+        scanner.scanRange(section, cell, end, (match, target) -> {
+            long pos = BlockPos.asLong(
+                startX + (match & 15),
+                yOffset + (match >> 8),
+                startZ + ((match >> 4) & 15)
+            );
+            out.get(target).add(pos);
+            if (exposedCells != null && ExposureMask.isSet(exposedCells, match)) {
+                hits.get(target).add(pos);
+            }
+        });
+        cell = end;
+        if (cell >= PaletteScanner.SECTION_VOLUME) {
+            if (exposedCells == null) {
+                for (int t = 0; t < targetCount; t++) {
+                    hits.get(t).addAll(sectionHits.get(t));
+                }
+            }
+            BlockSearchCache.cacheResults(chunk.getPos().toLong(), sectionIndex, section.version(), scanner.getLookup(), sectionHits);
+            section = null;
+            sectionHits = null;
+            exposed = null;
+            sectionIndex++;
+        }
+        return false;
+    }
+
+    public int getQueuedChunks() {
+        return queue.size() + (chunkPos != null ? 1 : 0);
+    }
+
+    public int getChunksDone() {
+        return chunksDone;
+    }
+
+    /**
+     * Chunks queued since the scanner was last idle, for progress reporting.
+     */
+    public int getChunksTotal() {
+        return queuedTotal;
+    }
+
+    /**
+     * Cursor position as text, for debug output.
+     */
+    public String describeCursor() {
+        if (chunkPos == null) return "idle";
+        return "chunk " + chunkPos + ", section " + sectionIndex + ", cell " + cell;
+    }
+}
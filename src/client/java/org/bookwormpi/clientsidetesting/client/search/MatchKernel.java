@@ -0,0 +1,191 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Chooses between the scalar and the SIMD walk over a section's palette indices.
+ *
+ * The SIMD kernel ({@link VectorWalk}) needs the incubating jdk.incubator.vector
+ * module, which the JVM only provides when started with
+ * {@code --add-modules jdk.incubator.vector}. Without it, or when switched off,
+ * every section takes the scalar path. The kernel only handles sections with a
+ * local palette and a few matching ids; others fall back section by section.
+ *
+ * {@link #verify} and {@link #benchmark} compare the two paths on generated
+ * sections, for the /cst debug vector command.
+ */
+public class MatchKernel {
+    private static final Logger LOGGER = LoggerFactory.getLogger("clientsidetesting-scan");
+    private static final String MODULE = "jdk.incubator.vector";
+    // Largest local palette; sections using the global palette stay scalar
+    private static final int MAX_PALETTE_BITS = 8;
+    // Benchmark rounds run before timing starts, so both kernels are compiled by the JIT
+    private static final int WARMUP_ROUNDS = 3;
+    private static final boolean AVAILABLE = detect();
+    private static volatile boolean enabled = true;
+
+    private static boolean detect() {
+        if (ModuleLayer.boot().findModule(MODULE).isEmpty()) {
+            LOGGER.info("{} not present, block scans use the scalar kernel", MODULE);
+            return false;
+        }
+        try {
+            int lanes = VectorWalk.lanes();
+            LOGGER.info("Block scans use the vector kernel ({} lanes of 64 bits)", lanes);
+            return lanes > 1;
+        } catch (Throwable t) {
+            LOGGER.warn("Vector kernel unavailable, block scans use the scalar kernel", t);
+            return false;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether scans currently take the SIMD path.
+     */
+    public static boolean isActive() {
+        return AVAILABLE && enabled;
+    }
+
+    public static int getLanes() {
+        return AVAILABLE ? VectorWalk.lanes() : 1;
+    }
+
+    /**
+     * Walk a whole section with the SIMD kernel.
+     *
+     * @return number of matching cells, or -1 if the scalar walk has to be used
+     */
+    static int walkIndices(long[] words, int bits, short[] targets, PaletteScanner.MatchConsumer onMatch) {
+        if (!isActive() || bits == 0 || bits > MAX_PALETTE_BITS) return -1;
+        return VectorWalk.walkIndices(words, bits, targets, onMatch);
+    }
+
+    /**
+     * Scan generated sections with both kernels and compare what they report.
+     *
+     * @return null if every section matched, otherwise a description of the first mismatch
+     */
+    public static String verify(int sections, long seed) {
+        if (!AVAILABLE) return MODULE + " is not available";
+        Random random = new Random(seed);
+        for (int s = 0; s < sections; s++) {
+            int bits = 1 + s % MAX_PALETTE_BITS;
+            long[] words = randomSection(random, bits);
+            short[] targets = randomTargets(random, bits, 1 + random.nextInt(VectorWalk.MAX_IDS));
+            long[] expected = collect(words, bits, targets, false);
+            long[] actual = collect(words, bits, targets, true);
+            if (!Arrays.equals(expected, actual)) {
+                return "section " + s + " (" + bits + " bits): scalar found " + expected.length + ", vector found " + actual.length;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Time both kernels on the same generated sections.
+     *
+     * @param matchChance chance of a cell holding a target, e.g. 0.01 for ores
+     * @return average nanoseconds per section, scalar then vector
+     */
+    public static double[] benchmark(int sections, int rounds, double matchChance, long seed) {
+        Random random = new Random(seed);
+        long[][] data = new long[sections][];
+        short[][] targets = new short[sections][];
+        int[] bits = new int[sections];
+        for (int s = 0; s < sections; s++) {
+            bits[s] = 4 + s % 2; // The common local palette sizes
+            targets[s] = new short[1 << bits[s]];
+            Arrays.fill(targets[s], (short) StateLookup.NONE);
+            targets[s][1] = 0;
+            data[s] = sparseSection(random, bits[s], matchChance);
+        }
+        int[] sink = new int[1];
+        PaletteScanner.MatchConsumer consumer = (cell, target) -> sink[0] += cell;
+        long scalar = 0;
+        long vector = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+            long start = System.nanoTime();
+            for (int s = 0; s < sections; s++) {
+                PaletteScanner.walkIndices(data[s], bits[s], targets[s], 0, PaletteScanner.SECTION_VOLUME, consumer);
+            }
+            long middle = System.nanoTime();
+            if (AVAILABLE) {
+                for (int s = 0; s < sections; s++) {
+                    VectorWalk.walkIndices(data[s], bits[s], targets[s], consumer);
+                }
+            }
+            long end = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                scalar += middle - start;
+                vector += end - middle;
+            }
+        }
+        double runs = (double) sections * rounds;
+        return new double[] {scalar / runs, AVAILABLE ? vector / runs : Double.NaN};
+    }
+
+    // Matches as sorted (cell << 16 | target) keys, since the vector kernel reports out of cell order
+    private static long[] collect(long[] words, int bits, short[] targets, boolean vector) {
+        long[] keys = new long[PaletteScanner.SECTION_VOLUME];
+        int[] count = new int[1];
+        PaletteScanner.MatchConsumer consumer = (cell, target) -> keys[count[0]++] = ((long) cell << 16) | target;
+        int found = vector
+            ? VectorWalk.walkIndices(words, bits, targets, consumer)
+            : PaletteScanner.walkIndices(words, bits, targets, 0, PaletteScanner.SECTION_VOLUME, consumer);
+        if (found != count[0]) return new long[0];
+        long[] result = Arrays.copyOf(keys, count[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static short[] randomTargets(Random random, int bits, int count) {
+        short[] targets = new short[1 << bits];
+        Arrays.fill(targets, (short) StateLookup.NONE);
+        for (int i = 0; i < count; i++) {
+            targets[random.nextInt(targets.length)] = (short) random.nextInt(4);
+        }
+        return targets;
+    }
+
+    private static long[] randomSection(Random random, int bits) {
+        int perWord = 64 / bits;
+        long[] words = new long[(PaletteScanner.SECTION_VOLUME + perWord - 1) / perWord];
+        int cell = 0;
+        for (int w = 0; w < words.length; w++) {
+            for (int j = 0; j < perWord && cell < PaletteScanner.SECTION_VOLUME; j++, cell++) {
+                words[w] |= (long) random.nextInt(1 << bits) << (j * bits);
+            }
+        }
+        return words;
+    }
+
+    // Palette id 1 is the target, everything else is id 0 or 2
+    private static long[] sparseSection(Random random, int bits, double matchChance) {
+        int perWord = 64 / bits;
+        long[] words = new long[(PaletteScanner.SECTION_VOLUME + perWord - 1) / perWord];
+        int cell = 0;
+        for (int w = 0; w < words.length; w++) {
+            for (int j = 0; j < perWord && cell < PaletteScanner.SECTION_VOLUME; j++, cell++) {
+                long id = random.nextDouble() < matchChance ? 1 : random.nextBoolean() ? 0 : 2;
+                words[w] |= id << (j * bits);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,160 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.collection.PaletteStorage;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.IdListPalette;
+import net.minecraft.world.chunk.Palette;
+
+import java.util.Arrays;
+
+/**
+ * Scans chunk sections by looking at their block state palette first.
+ *
+ * A section whose palette holds no searched-for state is skipped without touching
+ * its 4096 cells. For the rest, each palette entry is resolved to a target index
+ * once, and the packed palette indices are decoded straight from the backing
+ * long array, so every cell costs a single table lookup however many targets
+ * there are. Reported cell indices use the vanilla layout: (y << 8) | (z << 4) | x.
+ *
+ * Live sections are only read by {@link #paletteTargets(ChunkSection)} and
+ * {@link #snapshot}, which must run on the client thread. The snapshot owns a copy of the packed data and can be scanned anywhere.
+ */
+public class PaletteScanner {
+    public static final int SECTION_VOLUME = 4096;
+
+    @FunctionalInterface
+    public interface MatchConsumer {
+        void accept(int cell, int target);
+    }
+
+    private final StateLookup lookup;
+
+    public PaletteScanner(StateLookup lookup) {
+        this.lookup = lookup;
+    }
+
+    public StateLookup getLookup() {
+        return lookup;
+    }
+
+    /**
+     * Immutable copy of what a scan needs from one section: the target index of
+     * each palette id and the packed palette indices, plus the section's
+     * modification version when the copy was taken. For exposed-only searches it
+     * also holds the open cells around the section, otherwise that is null.
+     */
+    public record SectionSnapshot(int sectionY, short[] paletteTargets, long[] data, int bits, long version, ExposureMask.Neighbourhood exposure) {
+    }
+
+    /**
+     * Copy the parts of a section needed for scanning, given the palette targets
+     * resolved by {@link #paletteTargets(ChunkSection)}. Must be called on the
+     * client thread, which is the only thread that mutates section data.
+     */
+    public SectionSnapshot snapshot(ChunkSection section, int sectionY, short[] targets, long version) {
+        return snapshot(section, sectionY, targets, version, null);
+    }
+
+    public SectionSnapshot snapshot(ChunkSection section, int sectionY, short[] targets, long version, ExposureMask.Neighbourhood exposure) {
+        PaletteStorage storage = section.getBlockStateContainer().data.storage();
+        return new SectionSnapshot(sectionY, targets, storage.getData().clone(), storage.getElementBits(), version, exposure);
+    }
+
+    /**
+     * Resolve the target index of every palette id of a section without copying
+     * anything. Client thread only.
+     *
+     * @return the table, or null if the palette has no searched-for state and
+     *         the whole section can be skipped
+     */
+    public short[] paletteTargets(ChunkSection section) {
+        if (section == null || section.isEmpty()) return null;
+        return paletteTargets(section.getBlockStateContainer().data.palette());
+    }
+
+    /**
+     * Scan a section snapshot and report the cell index and target of every match.
+     * Safe to call from any thread.
+     *
+     * @return number of matching cells
+     */
+    public int scan(SectionSnapshot section, MatchConsumer onMatch) {
+        return walkIndices(section.data(), section.bits(), section.paletteTargets(), onMatch);
+    }
+
+    /**
+     * Resolve the target index of every palette id, or null if none match.
+     */
+    private short[] paletteTargets(Palette<BlockState> palette) {
+        if (palette instanceof IdListPalette) {
+            // Global palette ids are raw state ids already
+            return lookup.table();
+        }
+        int size = palette.getSize();
+        short[] targets = null;
+        for (int id = 0; id < size; id++) {
+            int target = lookup.targetOf(Block.getRawIdFromState(palette.get(id)));
+            if (target != StateLookup.NONE) {
+                if (targets == null) {
+                    targets = new short[size];
+                    Arrays.fill(targets, (short) StateLookup.NONE);
+                }
+                targets[id] = (short) target;
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Scan part of a section snapshot, cells [from, to). Lets callers stop and
+     * resume inside a section.
+     *
+     * @return number of matching cells in the range
+     */
+    public int scanRange(SectionSnapshot section, int from, int to, MatchConsumer onMatch) {
+        return walkIndices(section.data(), section.bits(), section.paletteTargets(), from, to, onMatch);
+    }
+
+    /**
+     * Decode the packed palette indices of a section and report matching cells.
+     * Mirrors the PackedIntegerArray layout: values never straddle two longs.
+     */
+    static int walkIndices(long[] words, int bits, short[] targets, MatchConsumer onMatch) {
+        // Whole sections may take the SIMD kernel, which reports hits out of cell order
+        int found = MatchKernel.walkIndices(words, bits, targets, onMatch);
+        if (found >= 0) return found;
+        return walkIndices(words, bits, targets, 0, SECTION_VOLUME, onMatch);
+    }
+
+    static int walkIndices(long[] words, int bits, short[] targets, int from, int to, MatchConsumer onMatch) {
+        if (bits == 0) {
+            // Single-valued section, every cell has palette id 0
+            int target = targets[0];
+            if (target == StateLookup.NONE) return 0;
+            for (int cell = from; cell < to; cell++) {
+                onMatch.accept(cell, target);
+            }
+            return to - from;
+        }
+        int found = 0;
+        int perWord = 64 / bits;
+        long mask = (1L << bits) - 1L;
+        int cell = from;
+        int w = from / perWord;
+        int j = from - w * perWord;
+        for (; w < words.length && cell < to; w++, j = 0) {
+            long word = words[w] >>> (j * bits);
+            for (; j < perWord && cell < to; j++, cell++) {
+                int id = (int) (word & mask);
+                word >>>= bits;
+                if (id < targets.length && targets[id] != StateLookup.NONE) {
+                    onMatch.accept(cell, targets[id]);
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+}
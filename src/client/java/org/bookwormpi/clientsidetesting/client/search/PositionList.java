@@ -0,0 +1,215 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Growable list of block positions packed with {@link BlockPos#asLong}, with an
+ * optional squared distance per entry in a parallel array.
+ *
+ * Used instead of lists of BlockPos so that tens of thousands of hits cost two
+ * primitive arrays rather than one object each. Not thread-safe; a list is only
+ * ever written by the thread that created it before being handed over. A list
+ * that is shared, such as a cached one, is frozen and rejects further changes.
+ */
+public class PositionList {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final PositionList EMPTY = new PositionList(0).freeze();
+
+    private long[] positions;
+    private int[] distances;
+    private int size = 0;
+    private boolean frozen = false;
+
+    public PositionList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PositionList(int capacity) {
+        this.positions = new long[capacity];
+    }
+
+    /**
+     * Shared empty list. Must not be modified.
+     */
+    public static PositionList empty() {
+        return EMPTY;
+    }
+
+    public void add(long pos) {
+        add(pos, -1);
+    }
+
+    /**
+     * Add a position along with its squared distance to some reference point.
+     */
+    public void add(long pos, int distanceSq) {
+        checkMutable();
+        if (size == positions.length) {
+            grow(Math.max(DEFAULT_CAPACITY, size * 2));
+        }
+        if (distances == null && distanceSq >= 0) {
+            // Entries added without a distance so far read as -1
+            distances = new int[positions.length];
+            Arrays.fill(distances, 0, size, -1);
+        }
+        positions[size] = pos;
+        if (distances != null) {
+            distances[size] = distanceSq;
+        }
+        size++;
+    }
+
+    public void addAll(PositionList other) {
+        checkMutable();
+        int needed = size + other.size;
+        if (needed > positions.length) {
+            grow(Math.max(needed, size * 2));
+        }
+        System.arraycopy(other.positions, 0, positions, size, other.size);
+        if (distances != null) {
+            if (other.distances != null) {
+                System.arraycopy(other.distances, 0, distances, size, other.size);
+            } else {
+                Arrays.fill(distances, size, needed, -1);
+            }
+        }
+        size = needed;
+    }
+
+    // Positions and distances always have the same capacity
+    private void grow(int capacity) {
+        positions = Arrays.copyOf(positions, capacity);
+        if (distances != null) {
+            distances = Arrays.copyOf(distances, capacity);
+        }
+    }
+
+    /**
+     * Approximate heap footprint, for cache budgeting.
+     */
+    public long estimateBytes() {
+        return 32L + positions.length * 8L + (distances != null ? distances.length * 4L : 0L);
+    }
+
+    public long get(int i) {
+        return positions[i];
+    }
+
+    public int getX(int i) {
+        return BlockPos.unpackLongX(positions[i]);
+    }
+
+    public int getY(int i) {
+        return BlockPos.unpackLongY(positions[i]);
+    }
+
+    public int getZ(int i) {
+        return BlockPos.unpackLongZ(positions[i]);
+    }
+
+    /**
+     * Squared distance stored with the entry, or -1 if it was added without one.
+     */
+    public int getDistanceSq(int i) {
+        return distances != null ? distances[i] : -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        checkMutable();
+        size = 0;
+    }
+
+    /**
+     * Drop all entries from an index on, keeping the first ones.
+     */
+    public void truncate(int newSize) {
+        checkMutable();
+        size = Math.min(size, Math.max(0, newSize));
+    }
+
+    /**
+     * Make this list read-only so it can be handed out without copying.
+     */
+    public PositionList freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("PositionList is read-only");
+        }
+    }
+
+    /**
+     * Remove the entry at an index by swapping the last entry into its slot. Order is not kept.
+     */
+    public void removeAt(int i) {
+        checkMutable();
+        size--;
+        positions[i] = positions[size];
+        if (distances != null) {
+            distances[i] = distances[size];
+        }
+    }
+
+    /**
+     * Keep only the positions a predicate accepts, compacting in place. Order is kept.
+     */
+    public void retainIf(LongPredicate keep) {
+        checkMutable();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (keep.test(positions[i])) {
+                positions[kept] = positions[i];
+                if (distances != null) {
+                    distances[kept] = distances[i];
+                }
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Copy of this list sorted by squared distance to a point, nearest first,
+     * with the distances filled in.
+     *
+     * Sorts a primitive array of (distance << 32 | index) keys, so no comparator
+     * or boxing is involved. Distances within a search radius fit easily in 31 bits.
+     */
+    public PositionList sortedByDistance(int x, int y, int z) {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) distanceSq(positions[i], x, y, z) << 32) | i;
+        }
+        Arrays.sort(keys);
+        PositionList sorted = new PositionList(size);
+        for (long key : keys) {
+            sorted.add(positions[(int) key], (int) (key >>> 32));
+        }
+        return sorted;
+    }
+
+    public static int distanceSq(long pos, int x, int y, int z) {
+        int dx = BlockPos.unpackLongX(pos) - x;
+        int dy = BlockPos.unpackLongY(pos) - y;
+        int dz = BlockPos.unpackLongZ(pos) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
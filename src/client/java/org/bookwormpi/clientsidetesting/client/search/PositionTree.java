@@ -0,0 +1,203 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Static k-d tree over packed block positions, answering k-nearest queries in
+ * logarithmic time instead of a pass over every hit.
+ *
+ * The tree is implicit: positions are reordered in place so that for any range
+ * the middle entry splits the rest on one axis (x, y, z by depth). Building is
+ * O(n log n) and done once per result change; queries do not allocate.
+ *
+ * Queries keep state in fields, so a tree must only be queried from one thread.
+ */
+public class PositionTree {
+    private static final PositionTree EMPTY = new PositionTree(new long[0]);
+
+    private final long[] nodes;
+    // k-nearest search heap, reused between queries
+    private long[] heap = new long[0];
+
+    private PositionTree(long[] nodes) {
+        this.nodes = nodes;
+    }
+
+    public static PositionTree empty() {
+        return EMPTY;
+    }
+
+    public static PositionTree build(PositionList positions) {
+        if (positions.isEmpty()) return EMPTY;
+        long[] nodes = new long[positions.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = positions.get(i);
+        }
+        build(nodes, 0, nodes.length, 0);
+        return new PositionTree(nodes);
+    }
+
+    private static void build(long[] nodes, int lo, int hi, int axis) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            select(nodes, lo, hi - 1, mid, axis);
+            int next = axis == 2 ? 0 : axis + 1;
+            build(nodes, lo, mid, next);
+            // Loop on the right half instead of recursing
+            lo = mid + 1;
+            axis = next;
+        }
+    }
+
+    /**
+     * Quickselect: move the k-th smallest entry on an axis to index k, with smaller
+     * or equal entries before it and greater or equal ones after. Bounds are inclusive.
+     */
+    private static void select(long[] nodes, int lo, int hi, int k, int axis) {
+        while (hi > lo) {
+            int pivot = coord(nodes[(lo + hi) >>> 1], axis);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coord(nodes[i], axis) < pivot) i++;
+                while (coord(nodes[j], axis) > pivot) j--;
+                if (i <= j) {
+                    long swap = nodes[i];
+                    nodes[i] = nodes[j];
+                    nodes[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public boolean isEmpty() {
+        return nodes.length == 0;
+    }
+
+    public long get(int i) {
+        return nodes[i];
+    }
+
+    public int getX(int i) {
+        return BlockPos.unpackLongX(nodes[i]);
+    }
+
+    public int getY(int i) {
+        return BlockPos.unpackLongY(nodes[i]);
+    }
+
+    public int getZ(int i) {
+        return BlockPos.unpackLongZ(nodes[i]);
+    }
+
+    /**
+     * Collect the k entries nearest to a block position into out, nearest first,
+     * with their squared distances. Out is cleared first.
+     */
+    public void nearest(int x, int y, int z, int k, PositionList out) {
+        out.clear();
+        if (nodes.length == 0 || k <= 0) return;
+        // Max-heap of (distance << 32 | index) keys, so the root is the worst kept entry
+        int capacity = Math.min(k, nodes.length);
+        if (heap.length < capacity) {
+            heap = new long[capacity];
+        }
+        int count = searchNearest(0, nodes.length, 0, x, y, z, capacity, 0);
+        // Heap sort in place: repeatedly move the farthest entry to the end
+        for (int end = count - 1; end > 0; end--) {
+            long swap = heap[0];
+            heap[0] = heap[end];
+            heap[end] = swap;
+            siftDown(heap, 0, end);
+        }
+        for (int i = 0; i < count; i++) {
+            out.add(nodes[(int) heap[i]], (int) (heap[i] >>> 32));
+        }
+    }
+
+    private int searchNearest(int lo, int hi, int axis, int x, int y, int z, int capacity, int count) {
+        if (lo >= hi) return count;
+        int mid = (lo + hi) >>> 1;
+        long node = nodes[mid];
+        long key = (Math.min(distanceSq(node, x, y, z), Integer.MAX_VALUE) << 32) | mid;
+        if (count < capacity) {
+            heap[count] = key;
+            siftUp(heap, count++);
+        } else if (key < heap[0]) {
+            heap[0] = key;
+            siftDown(heap, 0, count);
+        }
+        long diff = axisCoord(x, y, z, axis) - coord(node, axis);
+        int next = axis == 2 ? 0 : axis + 1;
+        if (diff < 0) {
+            count = searchNearest(lo, mid, next, x, y, z, capacity, count);
+            if (count < capacity || diff * diff < (heap[0] >>> 32)) {
+                count = searchNearest(mid + 1, hi, next, x, y, z, capacity, count);
+            }
+        } else {
+            count = searchNearest(mid + 1, hi, next, x, y, z, capacity, count);
+            if (count < capacity || diff * diff < (heap[0] >>> 32)) {
+                count = searchNearest(lo, mid, next, x, y, z, capacity, count);
+            }
+        }
+        return count;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= heap[i]) return;
+            long swap = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = swap;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int i, int count) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < count && heap[left] > heap[largest]) largest = left;
+            if (right < count && heap[right] > heap[largest]) largest = right;
+            if (largest == i) return;
+            long swap = heap[largest];
+            heap[largest] = heap[i];
+            heap[i] = swap;
+            i = largest;
+        }
+    }
+
+    private static long distanceSq(long pos, int x, int y, int z) {
+        long dx = BlockPos.unpackLongX(pos) - x;
+        long dy = BlockPos.unpackLongY(pos) - y;
+        long dz = BlockPos.unpackLongZ(pos) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int coord(long pos, int axis) {
+        return switch (axis) {
+            case 0 -> BlockPos.unpackLongX(pos);
+            case 1 -> BlockPos.unpackLongY(pos);
+            default -> BlockPos.unpackLongZ(pos);
+        };
+    }
+
+    private static int axisCoord(int x, int y, int z, int axis) {
+        return axis == 0 ? x : axis == 1 ? y : z;
+    }
+}
@@ -0,0 +1,123 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.WorldView;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * Vertical limits of a search: a fixed Y range, and optionally only the blocks
+ * at or below the surface of each column.
+ *
+ * Sections entirely outside the limits are skipped before their palette is even
+ * looked at, so a search over a narrow band costs roughly its share of the
+ * column. Sections that are partly inside are still scanned and cached whole,
+ * and their hits filtered afterwards, so cached hits stay valid for any band.
+ */
+public record ScanBand(int minY, int maxY, int surfaceDepth) {
+    /** Surface depth meaning "ignore the surface". */
+    public static final int NO_SURFACE = -1;
+    /** Surface depth meaning "everything up to the surface". */
+    public static final int TO_SURFACE = 0;
+    public static final ScanBand ALL = new ScanBand(Integer.MIN_VALUE, Integer.MAX_VALUE, NO_SURFACE);
+
+    public boolean isSurface() {
+        return surfaceDepth != NO_SURFACE;
+    }
+
+    public boolean isUnbounded() {
+        return equals(ALL);
+    }
+
+    /**
+     * Whether one position is inside the band, reading the surface from the live
+     * world. Client thread only. A change that moves the surface is only applied
+     * to the rest of the column when its chunk is next scanned.
+     */
+    public boolean contains(WorldView world, BlockPos pos) {
+        if (pos.getY() < minY || pos.getY() > maxY) return false;
+        if (!isSurface() || world == null) return true;
+        int top = world.getTopY(Heightmap.Type.WORLD_SURFACE, pos.getX(), pos.getZ()) - 1;
+        return isNearSurface(pos.getY(), top, surfaceDepth);
+    }
+
+    private static boolean isNearSurface(int y, int top, int depth) {
+        return y <= top && (depth == TO_SURFACE || y > top - depth);
+    }
+
+    /**
+     * Resolve the band for one chunk, reading its surface heightmap when needed.
+     * Client thread only; the result is immutable and can be used anywhere.
+     */
+    public ChunkBand resolve(WorldChunk chunk) {
+        int low = Math.max(minY, chunk.getBottomY());
+        int high = Math.min(maxY, chunk.getTopYInclusive());
+        if (!isSurface()) {
+            return new ChunkBand(low, high, surfaceDepth, null);
+        }
+        // WORLD_SURFACE holds one above the highest non-air block of each column
+        Heightmap heightmap = chunk.getHeightmap(Heightmap.Type.WORLD_SURFACE);
+        int[] tops = new int[256];
+        int highestTop = Integer.MIN_VALUE;
+        int lowestTop = Integer.MAX_VALUE;
+        for (int i = 0; i < 256; i++) {
+            tops[i] = heightmap.get(i & 15, i >> 4) - 1;
+            highestTop = Math.max(highestTop, tops[i]);
+            lowestTop = Math.min(lowestTop, tops[i]);
+        }
+        high = Math.min(high, highestTop);
+        if (surfaceDepth != TO_SURFACE) {
+            low = Math.max(low, lowestTop - surfaceDepth + 1);
+        }
+        return new ChunkBand(low, high, surfaceDepth, tops);
+    }
+
+    /**
+     * Describe the band for chat and the HUD.
+     */
+    public String describe() {
+        if (isUnbounded()) return "all heights";
+        StringBuilder text = new StringBuilder();
+        if (minY != Integer.MIN_VALUE || maxY != Integer.MAX_VALUE) {
+            text.append("y ")
+                .append(minY == Integer.MIN_VALUE ? "bottom" : String.valueOf(minY))
+                .append("..")
+                .append(maxY == Integer.MAX_VALUE ? "top" : String.valueOf(maxY));
+        }
+        if (isSurface()) {
+            if (!text.isEmpty()) text.append(", ");
+            text.append(surfaceDepth == TO_SURFACE ? "up to the surface" : surfaceDepth + " below the surface");
+        }
+        return text.toString();
+    }
+
+    /**
+     * The band of one chunk: the Y range worth scanning, plus the surface height
+     * of each column in surface mode, indexed by (z << 4) | x.
+     */
+    public record ChunkBand(int minY, int maxY, int surfaceDepth, int[] tops) {
+        public boolean isEmpty() {
+            return minY > maxY;
+        }
+
+        /**
+         * Whether a section starting at a Y coordinate has any cell inside the band.
+         */
+        public boolean overlapsSection(int sectionBottomY) {
+            return sectionBottomY <= maxY && sectionBottomY + 15 >= minY;
+        }
+
+        public boolean contains(int x, int y, int z) {
+            if (y < minY || y > maxY) return false;
+            if (tops == null) return true;
+            return isNearSurface(y, tops[((z & 15) << 4) | (x & 15)], surfaceDepth);
+        }
+
+        /**
+         * Drop hits outside the band, in place.
+         */
+        public void filter(PositionList hits) {
+            hits.retainIf(pos -> contains(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos)));
+        }
+    }
+}
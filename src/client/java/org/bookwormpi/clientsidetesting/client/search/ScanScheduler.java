@@ -0,0 +1,188 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+/**
+ * Picks how often background scan work runs and how far out newly loaded
+ * chunks are scanned right away, from what scanning has recently cost.
+ *
+ * Three measurements drive it, each a moving average:
+ * <ul>
+ *   <li>scan load: thread time spent scanning per second of wall time, as a
+ *       share of one core, against a configurable budget;</li>
+ *   <li>frame time, against the frame rate the game is limited to (at most 60);</li>
+ *   <li>horizontal player speed in blocks per tick.</li>
+ * </ul>
+ * Over budget or with slow frames the interval stretches and the radius shrinks
+ * with the square root of the overload, since scan work grows with the area
+ * covered. Moving fast shortens the interval so chunks streaming in are scanned
+ * before the player reaches them. Chunks beyond the radius are deferred, not
+ * dropped; while they wait they cost nothing, so the load falls and the radius
+ * grows back to take them.
+ *
+ * Only used from the client thread.
+ */
+public class ScanScheduler {
+    public static final int MAX_INTERVAL_TICKS = 100;
+    public static final int MIN_RADIUS = 2;
+    // Weight of the newest sample in the moving averages
+    private static final double FRAME_SMOOTHING = 0.05;
+    private static final double SPEED_SMOOTHING = 0.2;
+    private static final double LOAD_SMOOTHING = 0.5;
+    // Scan load is measured over windows of this length
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    // Frames slower than this are pauses or loading screens, not rendering
+    private static final long MAX_FRAME_NANOS = 250_000_000L;
+    // Speed at which the interval is halved; sprinting is about 0.28 blocks per tick, elytra flight 1.5 and more
+    private static final double FAST_SPEED = 0.5;
+    // Moves longer than this in one tick are teleports
+    private static final double MAX_MOVE = 10.0;
+    private static final int MAX_TARGET_FPS = 60;
+
+    private int cpuBudgetPercent = 10;
+    private int targetFps = MAX_TARGET_FPS;
+
+    private double frameNanos = 0;
+    private long lastFrame = 0;
+    private double speed = 0;
+    private double lastX = Double.NaN;
+    private double lastZ = Double.NaN;
+    private double load = 0;
+    private long windowStart = 0;
+    private long windowWork = 0;
+    private long lastScannerNanos = -1;
+
+    private int intervalTicks = 1;
+    private double radiusScale = 1.0;
+
+    /**
+     * Set the share of one core scanning may use, in percent.
+     */
+    public void setCpuBudgetPercent(int percent) {
+        cpuBudgetPercent = Math.clamp(percent, 1, 100);
+    }
+
+    public int getCpuBudgetPercent() {
+        return cpuBudgetPercent;
+    }
+
+    /**
+     * Set the frame rate the game is limited to; frames count as tight when
+     * slower than this, or than 60 FPS with a higher or no limit.
+     */
+    public void setFrameLimit(int fps) {
+        targetFps = Math.clamp(fps, 1, MAX_TARGET_FPS);
+    }
+
+    /**
+     * Count a rendered frame.
+     */
+    public void onFrame(long now) {
+        long delta = now - lastFrame;
+        lastFrame = now;
+        if (delta <= 0 || delta > MAX_FRAME_NANOS) return;
+        frameNanos = frameNanos == 0 ? delta : frameNanos + (delta - frameNanos) * FRAME_SMOOTHING;
+    }
+
+    /**
+     * Count scan work done on the client thread, such as snapshots and budgeted
+     * scan slices.
+     */
+    public void addWork(long nanos) {
+        windowWork += nanos;
+    }
+
+    /**
+     * Sample the player's position and the scan threads' work. Call once per
+     * client tick.
+     *
+     * @param scannerNanos total thread time scan threads have spent so far
+     */
+    public void onTick(double x, double z, long scannerNanos, long now) {
+        if (!Double.isNaN(lastX)) {
+            double move = Math.hypot(x - lastX, z - lastZ);
+            if (move <= MAX_MOVE) {
+                speed += (move - speed) * SPEED_SMOOTHING;
+            }
+        }
+        lastX = x;
+        lastZ = z;
+
+        if (lastScannerNanos >= 0) {
+            windowWork += scannerNanos - lastScannerNanos;
+        }
+        lastScannerNanos = scannerNanos;
+        if (windowStart == 0) {
+            windowStart = now;
+        } else if (now - windowStart >= WINDOW_NANOS) {
+            double share = windowWork / (double) (now - windowStart);
+            load += (share - load) * LOAD_SMOOTHING;
+            windowStart = now;
+            windowWork = 0;
+        }
+    }
+
+    /**
+     * Pick the interval and radius for the current measurements.
+     *
+     * @param baseIntervalTicks interval when within budget and standing still
+     */
+    public void update(int baseIntervalTicks) {
+        double overload = Math.max(1.0, Math.max(getLoadRatio(), getFrameRatio()));
+        double interval = Math.max(1, baseIntervalTicks) * overload / (1.0 + speed / FAST_SPEED);
+        intervalTicks = Math.clamp(Math.round(interval), 1, MAX_INTERVAL_TICKS);
+        radiusScale = 1.0 / Math.sqrt(overload);
+    }
+
+    /**
+     * Scan load relative to the budget; above 1 means over budget.
+     */
+    public double getLoadRatio() {
+        return load / (cpuBudgetPercent / 100.0);
+    }
+
+    /**
+     * Average frame time relative to the target frame time, squared so that
+     * frames a little slow stretch the interval a little and frames at half the
+     * target rate stretch it four times; 1 while frames keep up.
+     */
+    public double getFrameRatio() {
+        if (frameNanos == 0) return 1.0;
+        double ratio = frameNanos * targetFps / 1_000_000_000.0;
+        return ratio * ratio;
+    }
+
+    /**
+     * Ticks between scan batches and result refreshes.
+     */
+    public int getIntervalTicks() {
+        return intervalTicks;
+    }
+
+    /**
+     * Radius in chunks to scan newly loaded chunks within, out of the full radius.
+     */
+    public int getRadius(int fullRadius) {
+        return Math.min(fullRadius, Math.max(MIN_RADIUS, (int) Math.ceil(fullRadius * radiusScale)));
+    }
+
+    /**
+     * Recent scan load as a percentage of one core.
+     */
+    public double getLoadPercent() {
+        return load * 100.0;
+    }
+
+    public double getFrameMillis() {
+        return frameNanos / 1_000_000.0;
+    }
+
+    public int getTargetFps() {
+        return targetFps;
+    }
+
+    /**
+     * Average horizontal speed in blocks per tick.
+     */
+    public double getSpeed() {
+        return speed;
+    }
+}
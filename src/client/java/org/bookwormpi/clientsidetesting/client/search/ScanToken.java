@@ -0,0 +1,29 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+/**
+ * Identifies one full block search scan and lets a newer scan cancel it.
+ *
+ * Every scan gets the next generation number. Starting a scan cancels the token
+ * of the one before it; scan tasks check the token between chunks and stop early,
+ * and only the current generation's results are published.
+ */
+public class ScanToken {
+    private final int generation;
+    private volatile boolean cancelled = false;
+
+    public ScanToken(int generation) {
+        this.generation = generation;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,37 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import java.util.List;
+
+/**
+ * Snapshot of what block search currently shows: the targets searched for and,
+ * in the same order, the hits kept for each in a k-d tree and the veins found
+ * among all indexed hits in range, largest first.
+ *
+ * Snapshots are never changed after construction. A new one is built aside and
+ * published by swapping a single volatile reference, so the HUD and the world
+ * renderer each read one consistent snapshot per frame and publishing copies
+ * nothing. The trees keep query scratch state, so they are still only queried
+ * from the render thread.
+ */
+public record SearchResults(List<SearchTarget> targets, List<PositionTree> hits, List<List<VeinClusters.Vein>> veins, int generation) {
+    public SearchResults {
+        targets = List.copyOf(targets);
+        hits = List.copyOf(hits);
+        veins = List.copyOf(veins);
+    }
+
+    /**
+     * Hits for the target at an index, empty if there are none.
+     */
+    public PositionTree hitsFor(int target) {
+        return target < hits.size() ? hits.get(target) : PositionTree.empty();
+    }
+
+    public int totalHits() {
+        int total = 0;
+        for (PositionTree tree : hits) {
+            total += tree.size();
+        }
+        return total;
+    }
+}
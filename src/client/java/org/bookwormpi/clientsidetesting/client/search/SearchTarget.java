@@ -0,0 +1,40 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.block.Block;
+
+/**
+ * One thing the search looks for, with the color its highlights are drawn in.
+ */
+public record SearchTarget(BlockQuery query, int color) {
+    /** Color value meaning "cycle through the rainbow", the original highlight style. */
+    public static final int RAINBOW = -1;
+
+    private static final int[] DEFAULT_COLORS = {
+        0xFF5555, // red
+        0x55FF55, // green
+        0x5599FF, // blue
+        0xFFFF55, // yellow
+        0xFF55FF, // magenta
+        0x55FFFF, // cyan
+        0xFFAA00, // orange
+        0xFFFFFF  // white
+    };
+
+    public static SearchTarget of(Block block, int color) {
+        return new SearchTarget(BlockQuery.of(block), color);
+    }
+
+    /**
+     * Block used for icons; the block itself, or a representative for tag queries.
+     */
+    public Block block() {
+        return query.getDisplayBlock();
+    }
+
+    /**
+     * Default color for the n-th target: the first one keeps the rainbow, the rest get distinct colors.
+     */
+    public static int defaultColor(int index) {
+        return index == 0 ? RAINBOW : DEFAULT_COLORS[(index - 1) % DEFAULT_COLORS.length];
+    }
+}
@@ -0,0 +1,101 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Precomputed table over Block.STATE_IDS telling which search target, if any,
+ * a block state belongs to. Every target query (plain block, property filter or
+ * tag) is evaluated against every state once when the table is built, so testing
+ * a cell costs the same no matter how many or how complex the targets are.
+ *
+ * Also carries the search's {@link ScanBand} and whether only exposed blocks
+ * count, since hits ruled out by those are no more part of the search than
+ * blocks of another kind.
+ */
+public class StateLookup {
+    public static final int NONE = -1;
+
+    private final List<SearchTarget> targets;
+    private final ScanBand band;
+    private final boolean exposedOnly;
+    // Query sources in target order, one per line
+    private final String signature;
+    // Raw state id -> target index, NONE if the state is not searched for
+    private final short[] targetByStateId;
+
+    public StateLookup(List<SearchTarget> targets) {
+        this(targets, ScanBand.ALL, false);
+    }
+
+    /**
+     * @param exposedOnly only count blocks touching air or a fluid, see {@link ExposureMask}
+     */
+    public StateLookup(List<SearchTarget> targets, ScanBand band, boolean exposedOnly) {
+        this.targets = List.copyOf(targets);
+        this.band = band;
+        this.exposedOnly = exposedOnly;
+        StringBuilder signature = new StringBuilder();
+        for (SearchTarget target : this.targets) {
+            signature.append(target.query().getSource()).append('\n');
+        }
+        this.signature = signature.toString();
+        int stateCount = Block.STATE_IDS.size();
+        this.targetByStateId = new short[stateCount];
+        Arrays.fill(targetByStateId, (short) NONE);
+        for (BlockState state : Block.STATE_IDS) {
+            int rawId = Block.getRawIdFromState(state);
+            if (rawId < 0 || rawId >= stateCount) continue;
+            // First target wins if a state matches several queries
+            for (int t = 0; t < this.targets.size(); t++) {
+                if (this.targets.get(t).query().test(state)) {
+                    targetByStateId[rawId] = (short) t;
+                    break;
+                }
+            }
+        }
+    }
+
+    public List<SearchTarget> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Identifies the ordered target list. Since the first matching target wins,
+     * two lookups sharing a target can still disagree on its hits unless their
+     * signatures are equal.
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    public ScanBand getBand() {
+        return band;
+    }
+
+    public boolean isExposedOnly() {
+        return exposedOnly;
+    }
+
+    public int getTargetCount() {
+        return targets.size();
+    }
+
+    public int targetOf(int rawId) {
+        return rawId >= 0 && rawId < targetByStateId.length ? targetByStateId[rawId] : NONE;
+    }
+
+    public int targetOf(BlockState state) {
+        return targetOf(Block.getRawIdFromState(state));
+    }
+
+    /**
+     * The full table, indexable by raw state id. Shared, do not modify.
+     */
+    short[] table() {
+        return targetByStateId;
+    }
+}
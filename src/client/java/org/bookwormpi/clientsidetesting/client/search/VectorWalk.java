@@ -0,0 +1,86 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD version of {@link PaletteScanner}'s palette index walk, using the
+ * incubating Java Vector API.
+ *
+ * A vector holds as many packed words as the CPU has lanes. Every word keeps
+ * its j-th palette index at the same bit offset, so shifting and masking the
+ * whole vector yields the j-th index of each word at once, which is compared
+ * against the few matching palette ids to give a lane mask of hits. Only set
+ * lanes are visited, so sections without hits cost one compare per index
+ * position and word group instead of one table lookup per cell.
+ *
+ * Hits are reported grouped by position within a word rather than in cell
+ * order. Only referenced through {@link MatchKernel}, which loads this class
+ * once it has checked that the jdk.incubator.vector module is present.
+ */
+final class VectorWalk {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    // More matching palette ids than this and per-cell table lookups win again
+    static final int MAX_IDS = 8;
+
+    private VectorWalk() {
+    }
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Walk a whole section.
+     *
+     * @return number of matching cells, or -1 if the section is not suited to
+     *         this kernel and the scalar walk has to be used
+     */
+    static int walkIndices(long[] words, int bits, short[] targets, PaletteScanner.MatchConsumer onMatch) {
+        long[] ids = new long[MAX_IDS];
+        int idCount = 0;
+        for (int id = 0; id < targets.length; id++) {
+            if (targets[id] == StateLookup.NONE) continue;
+            if (idCount == MAX_IDS) return -1;
+            ids[idCount++] = id;
+        }
+        if (idCount == 0) return 0;
+        LongVector[] idVectors = new LongVector[idCount];
+        for (int i = 0; i < idCount; i++) {
+            idVectors[i] = LongVector.broadcast(SPECIES, ids[i]);
+        }
+
+        int perWord = 64 / bits;
+        long mask = (1L << bits) - 1L;
+        LongVector maskVector = LongVector.broadcast(SPECIES, mask);
+        int lanes = SPECIES.length();
+        int bound = SPECIES.loopBound(words.length);
+        int found = 0;
+        for (int w = 0; w < bound; w += lanes) {
+            LongVector packed = LongVector.fromArray(SPECIES, words, w);
+            for (int j = 0; j < perWord; j++) {
+                LongVector values = packed.and(maskVector);
+                VectorMask<Long> hit = values.eq(idVectors[0]);
+                for (int i = 1; i < idCount; i++) {
+                    hit = hit.or(values.eq(idVectors[i]));
+                }
+                for (long lanesHit = hit.toLong(); lanesHit != 0; lanesHit &= lanesHit - 1) {
+                    int lane = Long.numberOfTrailingZeros(lanesHit);
+                    int cell = (w + lane) * perWord + j;
+                    if (cell >= PaletteScanner.SECTION_VOLUME) continue; // Padding in the last word
+                    int id = (int) ((words[w + lane] >>> (j * bits)) & mask);
+                    onMatch.accept(cell, targets[id]);
+                    found++;
+                }
+                packed = packed.lanewise(VectorOperators.LSHR, bits);
+            }
+        }
+        // Words left over after the last full vector
+        if (bound < words.length) {
+            found += PaletteScanner.walkIndices(words, bits, targets, bound * perWord, PaletteScanner.SECTION_VOLUME, onMatch);
+        }
+        return found;
+    }
+}
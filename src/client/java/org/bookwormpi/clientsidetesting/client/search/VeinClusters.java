@@ -0,0 +1,141 @@
+package org.bookwormpi.clientsidetesting.client.search;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Groups found positions into veins: sets of blocks connected through any of
+ * their 26 neighbours, edges and corners included.
+ *
+ * Uses a union-find over the indices of the sorted positions, with union by size
+ * and path halving. Neighbours are found by binary search in the sorted array, and
+ * only the 13 neighbours ordered after a block are checked since adjacency is
+ * symmetric. Runs in O(n log n) without boxing or hashing.
+ */
+public class VeinClusters {
+    // The neighbour offsets that are lexicographically after (0, 0, 0), as dx, dy, dz
+    private static final int[] FORWARD = buildForwardOffsets();
+
+    /**
+     * One connected group of positions.
+     */
+    public record Vein(int size, float centerX, float centerY, float centerZ,
+                       int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        public float distanceSq(float x, float y, float z) {
+            float dx = centerX - x;
+            float dy = centerY - y;
+            float dz = centerZ - z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    private static int[] buildForwardOffsets() {
+        int[] offsets = new int[13 * 3];
+        int n = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx > 0 || (dx == 0 && (dy > 0 || (dy == 0 && dz > 0)))) {
+                        offsets[n++] = dx;
+                        offsets[n++] = dy;
+                        offsets[n++] = dz;
+                    }
+                }
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Cluster packed positions into veins, largest first.
+     *
+     * @param positions block positions packed with {@link BlockPos#asLong}; not modified
+     */
+    public static List<Vein> cluster(long[] positions, int count) {
+        long[] sorted = Arrays.copyOf(positions, count);
+        Arrays.sort(sorted);
+        int[] parent = new int[count];
+        int[] size = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        for (int i = 0; i < count; i++) {
+            int x = BlockPos.unpackLongX(sorted[i]);
+            int y = BlockPos.unpackLongY(sorted[i]);
+            int z = BlockPos.unpackLongZ(sorted[i]);
+            for (int o = 0; o < FORWARD.length; o += 3) {
+                int j = Arrays.binarySearch(sorted, BlockPos.asLong(x + FORWARD[o], y + FORWARD[o + 1], z + FORWARD[o + 2]));
+                if (j >= 0) {
+                    union(parent, size, i, j);
+                }
+            }
+        }
+
+        // Accumulate per root: count, coordinate sums and bounds
+        int[] slot = new int[count];
+        Arrays.fill(slot, -1);
+        int veins = 0;
+        long[] sums = new long[count * 3];
+        int[] bounds = new int[count * 6];
+        int[] counts = new int[count];
+        for (int i = 0; i < count; i++) {
+            int root = find(parent, i);
+            int v = slot[root];
+            int x = BlockPos.unpackLongX(sorted[i]);
+            int y = BlockPos.unpackLongY(sorted[i]);
+            int z = BlockPos.unpackLongZ(sorted[i]);
+            if (v < 0) {
+                v = slot[root] = veins++;
+                bounds[v * 6] = bounds[v * 6 + 3] = x;
+                bounds[v * 6 + 1] = bounds[v * 6 + 4] = y;
+                bounds[v * 6 + 2] = bounds[v * 6 + 5] = z;
+            }
+            counts[v]++;
+            sums[v * 3] += x;
+            sums[v * 3 + 1] += y;
+            sums[v * 3 + 2] += z;
+            bounds[v * 6] = Math.min(bounds[v * 6], x);
+            bounds[v * 6 + 1] = Math.min(bounds[v * 6 + 1], y);
+            bounds[v * 6 + 2] = Math.min(bounds[v * 6 + 2], z);
+            bounds[v * 6 + 3] = Math.max(bounds[v * 6 + 3], x);
+            bounds[v * 6 + 4] = Math.max(bounds[v * 6 + 4], y);
+            bounds[v * 6 + 5] = Math.max(bounds[v * 6 + 5], z);
+        }
+
+        List<Vein> result = new ArrayList<>(veins);
+        for (int v = 0; v < veins; v++) {
+            int n = counts[v];
+            // Centroid of the block centers
+            result.add(new Vein(n,
+                (float) sums[v * 3] / n + 0.5f, (float) sums[v * 3 + 1] / n + 0.5f, (float) sums[v * 3 + 2] / n + 0.5f,
+                bounds[v * 6], bounds[v * 6 + 1], bounds[v * 6 + 2], bounds[v * 6 + 3], bounds[v * 6 + 4], bounds[v * 6 + 5]));
+        }
+        result.sort((a, b) -> Integer.compare(b.size(), a.size()));
+        return result;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]]; // Path halving
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int[] size, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA == rootB) return;
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+    }
+}
@@ -9,6 +9,7 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.registry.Registries;
 import net.minecraft.text.Text;
 import org.bookwormpi.clientsidetesting.client.features.BlockSearchFeature;
+import org.bookwormpi.clientsidetesting.client.search.SearchTarget;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -23,6 +24,7 @@ import java.util.stream.Collectors;
  * - Visual block icons with tooltips
  * - Scrollable grid layout (9 columns, 8 rows)
  * - Mouse and keyboard navigation
+ * - Shift-click to add or remove a block from a multi-target search
  * 
  * @author bookwormpi
  * @since 1.1.0
@@ -41,6 +43,7 @@ public class BlockSearchConfigScreen extends Screen {
     private List<Block> filteredBlocks;
     private final int backgroundColor = 0xFF202020;
     private final int searchBarColor = 0xFF404040;
+    private static final int NOT_A_TARGET = -2;
 
     public BlockSearchConfigScreen(Screen parent) {
         super(Text.translatable("blocksearch.screen.title"));
@@ -138,7 +141,13 @@ public class BlockSearchConfigScreen extends Screen {
             int col = (i - startIndex) % ITEMS_PER_ROW;
             int itemX = startX + BORDER + col * SLOT_SIZE;
             
-            // Draw slot background
+            // Draw slot background, outlined in the highlight color if already searched for
+            int targetColor = getTargetColor(block);
+            if (targetColor != NOT_A_TARGET) {
+                context.fill(itemX - 1, itemY + row * SLOT_SIZE - 1,
+                            itemX + SLOT_SIZE, itemY + row * SLOT_SIZE + SLOT_SIZE,
+                            0xFF000000 | targetColor);
+            }
             context.fill(itemX, itemY + row * SLOT_SIZE,
                         itemX + SLOT_SIZE - 1, itemY + row * SLOT_SIZE + SLOT_SIZE - 1,
                         0xFF373737);
@@ -152,6 +161,7 @@ public class BlockSearchConfigScreen extends Screen {
                 List<Text> tooltip = new ArrayList<>();
                 tooltip.add(stack.getName());
                 tooltip.add(Text.literal(Registries.BLOCK.getId(block).toString()).formatted(net.minecraft.util.Formatting.GRAY));
+                tooltip.add(Text.literal(targetColor != NOT_A_TARGET ? "Shift-click to remove" : "Shift-click to add").formatted(net.minecraft.util.Formatting.DARK_GRAY));
                 context.drawTooltip(textRenderer, tooltip, mouseX, mouseY);
             }
         }
@@ -175,12 +185,17 @@ public class BlockSearchConfigScreen extends Screen {
             int index = scrollOffset * ITEMS_PER_ROW + row * ITEMS_PER_ROW + col;
             
             if (index >= 0 && index < filteredBlocks.size()) {
-                BlockSearchFeature.blockToSearch = filteredBlocks.get(index);
-                BlockSearchFeature.enabled = true;
-                if (MinecraftClient.getInstance().player != null) {
-                    System.out.println("[BlockSearchConfigScreen] Block selected, requesting scan...");
-                    BlockSearchFeature.requestScan(MinecraftClient.getInstance(), MinecraftClient.getInstance().player.getChunkPos());
+                Block block = filteredBlocks.get(index);
+                if (hasShiftDown()) {
+                    // Shift-click toggles the block in the target list and keeps the screen open
+                    if (BlockSearchFeature.isTarget(block)) {
+                        BlockSearchFeature.removeTarget(block);
+                    } else {
+                        BlockSearchFeature.addTarget(block);
+                    }
+                    return true;
                 }
+                BlockSearchFeature.setBlockToSearch(block);
                 MinecraftClient.getInstance().setScreen(parent);
                 return true;
             }
@@ -189,6 +204,15 @@ public class BlockSearchConfigScreen extends Screen {
         return super.mouseClicked(mouseX, mouseY, button);
     }
 
+    private static int getTargetColor(Block block) {
+        for (SearchTarget target : BlockSearchFeature.getTargets()) {
+            if (target.query().isBlock(block)) {
+                return target.color() == SearchTarget.RAINBOW ? 0xFFFFFF : target.color();
+            }
+        }
+        return NOT_A_TARGET;
+    }
+
     @Override
     public boolean mouseScrolled(double mouseX, double mouseY, double horizontalAmount, double verticalAmount) {
         int maxScroll = Math.max(0, (filteredBlocks.size() / ITEMS_PER_ROW) - VISIBLE_ROWS + 1);
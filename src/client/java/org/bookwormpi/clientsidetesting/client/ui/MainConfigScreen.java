@@ -119,7 +119,8 @@ public class MainConfigScreen extends Screen {
         ).dimensions(rightX + indent, yRight, buttonWidth - indent, BUTTON_HEIGHT).build());
         yRight += BUTTON_HEIGHT + 2;
         this.addDrawableChild(ButtonWidget.builder(
-                Text.literal("Block: " + net.minecraft.registry.Registries.BLOCK.getId(BlockSearchFeature.blockToSearch)),
+                Text.literal("Block: " + net.minecraft.registry.Registries.BLOCK.getId(BlockSearchFeature.blockToSearch)
+                        + (BlockSearchFeature.getTargets().size() > 1 ? " +" + (BlockSearchFeature.getTargets().size() - 1) : "")),
                 btn -> MinecraftClient.getInstance().setScreen(new BlockSearchConfigScreen(this))
         ).dimensions(rightX + indent, yRight, buttonWidth - indent, BUTTON_HEIGHT).build());
         yRight += BUTTON_HEIGHT + 2;
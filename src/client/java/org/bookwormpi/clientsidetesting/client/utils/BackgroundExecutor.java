@@ -0,0 +1,171 @@
+package org.bookwormpi.clientsidetesting.client.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The mod's own thread pool for background client work, so it does not compete
+ * with other mods for the JVM-wide common pool.
+ *
+ * Queued tasks run in priority order, and in submission order within a priority.
+ * The queue is bounded: a task submitted while it is full is rejected and its
+ * future completes with a {@link RejectedExecutionException}. Time spent queued
+ * and running is recorded in {@link PerformanceMonitor}.
+ */
+public class BackgroundExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger("clientsidetesting-executor");
+    public static final int DEFAULT_QUEUE_DEPTH = 64;
+    private static final int MAX_THREADS = 16;
+    // Block scans run here too, so by default leave one core for the game and use the rest
+    public static final int DEFAULT_THREADS = Math.clamp(Runtime.getRuntime().availableProcessors() - 1, 2, MAX_THREADS);
+
+    public enum Priority {
+        USER,       // Requested by the player, e.g. a settings change
+        NEAR_CHUNK, // Chunks that just loaded around the player
+        BACKGROUND  // Periodic refreshes and housekeeping
+    }
+
+    private static final AtomicLong sequence = new AtomicLong();
+    private static final AtomicInteger threadIndex = new AtomicInteger();
+    private static ThreadPoolExecutor executor;
+    private static volatile int maxQueueDepth = DEFAULT_QUEUE_DEPTH;
+    private static volatile int peakQueueDepth = 0;
+
+    /**
+     * Set the number of worker threads, or 0 for {@link #DEFAULT_THREADS}, and the
+     * queue bound. Can be called again at any time; threads are added or retired
+     * as they finish their tasks.
+     */
+    public static synchronized void configure(int threads, int queueDepth) {
+        threads = threads > 0 ? Math.clamp(threads, 1, MAX_THREADS) : DEFAULT_THREADS;
+        maxQueueDepth = Math.max(1, queueDepth);
+        if (executor == null) {
+            executor = createExecutor(threads);
+        } else if (threads > executor.getMaximumPoolSize()) {
+            // Core size may never exceed the maximum, so grow the maximum first
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+        LOGGER.debug("Background executor: {} threads, queue depth {}", threads, maxQueueDepth);
+    }
+
+    private static ThreadPoolExecutor createExecutor(int threads) {
+        // Only execute() is used, so everything in the queue is a comparable Task
+        return new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "ClientSideTesting-Worker-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = createExecutor(DEFAULT_THREADS);
+        }
+        return executor;
+    }
+
+    /**
+     * Run a task in the background.
+     */
+    public static CompletableFuture<Void> run(Priority priority, Runnable work) {
+        return supply(priority, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Compute a value in the background.
+     */
+    public static <T> CompletableFuture<T> supply(Priority priority, Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ThreadPoolExecutor pool = getExecutor();
+        int depth = pool.getQueue().size();
+        if (depth >= maxQueueDepth) {
+            PerformanceMonitor.incrementCounter("executor_rejected");
+            future.completeExceptionally(new RejectedExecutionException("Background queue full (" + depth + " tasks)"));
+            return future;
+        }
+        pool.execute(new Task<>(priority, work, future));
+        if (depth + 1 > peakQueueDepth) {
+            peakQueueDepth = depth + 1;
+        }
+        return future;
+    }
+
+    public static int getQueueDepth() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    public static int getPeakQueueDepth() {
+        return peakQueueDepth;
+    }
+
+    public static int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public static int getActiveCount() {
+        return executor != null ? executor.getActiveCount() : 0;
+    }
+
+    public static int getThreadCount() {
+        return executor != null ? executor.getCorePoolSize() : 0;
+    }
+
+    /**
+     * Name of the duration metric for time spent queued at a priority.
+     */
+    public static String waitMetric(Priority priority) {
+        return "executor_wait_" + priority.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Task<T> implements Runnable, Comparable<Task<?>> {
+        private final Priority priority;
+        private final long sequenceNumber = sequence.getAndIncrement();
+        private final long queuedAt = System.nanoTime();
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future;
+
+        Task(Priority priority, Supplier<T> work, CompletableFuture<T> future) {
+            this.priority = priority;
+            this.work = work;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            PerformanceMonitor.recordDuration(waitMetric(priority), start - queuedAt);
+            try {
+                future.complete(work.get());
+            } catch (Throwable t) {
+                LOGGER.error("Background task failed", t);
+                future.completeExceptionally(t);
+            } finally {
+                PerformanceMonitor.recordDuration("executor_run", System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+}
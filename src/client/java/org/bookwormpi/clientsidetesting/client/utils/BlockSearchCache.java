@@ -1,91 +1,153 @@
 package org.bookwormpi.clientsidetesting.client.utils;
 
-import net.minecraft.block.Block;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.HeightLimitView;
+import net.minecraft.world.chunk.WorldChunk;
+import org.bookwormpi.clientsidetesting.client.search.PositionList;
+import org.bookwormpi.clientsidetesting.client.search.StateLookup;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Caching system for block search results to improve performance
+ *
+ * Hits are cached per chunk section and ordered target list, tagged with the
+ * section's modification version. The whole list is part of the key because a
+ * block matching several targets only counts for the first of them, so the hits
+ * of one target depend on every target before it. Versions are bumped whenever a chunk is (re)loaded or a
+ * block in the section changes, so a cached entry is valid exactly as long as the
+ * section is unchanged. Entries are evicted least-recently-used once the cache
+ * goes over its memory budget.
+ *
+ * Versions are only touched on the client thread; the entry map may also be
+ * written by scan threads and is guarded by the class lock.
  */
 public class BlockSearchCache {
-    private static final long CACHE_EXPIRY_MS = 30000; // 30 seconds
-    private static final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
-    
-    public static class CacheKey {
-        private final ChunkPos chunkPos;
-        private final Block block;
-        private final int hashCode;
-        
-        public CacheKey(ChunkPos chunkPos, Block block) {
-            this.chunkPos = chunkPos;
-            this.block = block;
-            this.hashCode = Objects.hash(chunkPos, block);
-        }
-        
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) return true;
-            if (!(obj instanceof CacheKey other)) return false;
-            return Objects.equals(chunkPos, other.chunkPos) && 
-                   Objects.equals(block, other.block);
+    public static final long NO_VERSION = -1;
+    private static final long DEFAULT_BUDGET_BYTES = 16L * 1024 * 1024;
+    // Rough per-entry overhead of the key, entry and map node
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final LinkedHashMap<CacheKey, CacheEntry> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private static long budgetBytes = DEFAULT_BUDGET_BYTES;
+    private static long usedBytes = 0;
+
+    // Section versions per loaded chunk (client thread only)
+    private static final Map<Long, long[]> sectionVersions = new HashMap<>();
+    private static long nextVersion = 0;
+
+    public record CacheKey(long chunk, int sectionIndex, String targets) {
+    }
+
+    private record CacheEntry(long version, List<PositionList> positions) {
+        long bytes() {
+            long bytes = ENTRY_OVERHEAD_BYTES;
+            for (PositionList list : positions) {
+                bytes += list.estimateBytes();
+            }
+            return bytes;
         }
-        
-        @Override
-        public int hashCode() {
-            return hashCode;
+    }
+
+    /**
+     * Give every section of a freshly loaded chunk a new version.
+     */
+    public static void onChunkLoaded(WorldChunk chunk) {
+        long[] versions = new long[chunk.getSectionArray().length];
+        Arrays.fill(versions, ++nextVersion);
+        sectionVersions.put(chunk.getPos().toLong(), versions);
+    }
+
+    public static void onChunkUnloaded(WorldChunk chunk) {
+        sectionVersions.remove(chunk.getPos().toLong());
+    }
+
+    /**
+     * Bump the version of the section holding a changed block.
+     */
+    public static void onBlockChanged(HeightLimitView world, BlockPos pos) {
+        long[] versions = sectionVersions.get(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (versions == null) return;
+        int sectionIndex = world.getSectionIndex(pos.getY());
+        if (sectionIndex >= 0 && sectionIndex < versions.length) {
+            versions[sectionIndex] = ++nextVersion;
         }
     }
-    
-    private static class CacheEntry {
-        private final List<BlockPos> positions;
-        private final long timestamp;
-        
-        public CacheEntry(List<BlockPos> positions) {
-            this.positions = new ArrayList<>(positions);
-            this.timestamp = System.currentTimeMillis();
+
+    /**
+     * Current version of a section, or NO_VERSION if its chunk was never seen loading.
+     */
+    public static long getVersion(long chunk, int sectionIndex) {
+        long[] versions = sectionVersions.get(chunk);
+        if (versions == null || sectionIndex >= versions.length) return NO_VERSION;
+        return versions[sectionIndex];
+    }
+
+    /**
+     * Cached hits of a section for every target of a lookup, or null unless they
+     * were cached for the same ordered targets at the given version. The lists
+     * are read-only.
+     */
+    public static synchronized List<PositionList> getCachedResults(long chunk, int sectionIndex, long version, StateLookup lookup) {
+        if (version == NO_VERSION) return null;
+        CacheEntry entry = cache.get(new CacheKey(chunk, sectionIndex, lookup.getSignature()));
+        if (entry == null || entry.version != version) {
+            PerformanceMonitor.incrementCounter("cache_misses");
+            return null;
         }
-        
-        public boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > CACHE_EXPIRY_MS;
+        PerformanceMonitor.incrementCounter("cache_hits");
+        return entry.positions;
+    }
+
+    /**
+     * Store the hits of a scanned section, one list per target of the lookup.
+     * The lists are frozen and must not be changed by the caller afterwards.
+     */
+    public static synchronized void cacheResults(long chunk, int sectionIndex, long version, StateLookup lookup, List<PositionList> hits) {
+        if (version == NO_VERSION) return;
+        List<PositionList> positions = new ArrayList<>(hits.size());
+        for (PositionList list : hits) {
+            // Most sections hold no hits for a target, those all share the empty list
+            positions.add(list.isEmpty() ? PositionList.empty() : list.freeze());
         }
-        
-        public List<BlockPos> getPositions() {
-            return new ArrayList<>(positions);
+        CacheEntry entry = new CacheEntry(version, Collections.unmodifiableList(positions));
+        CacheEntry previous = cache.put(new CacheKey(chunk, sectionIndex, lookup.getSignature()), entry);
+        if (previous != null) {
+            usedBytes -= previous.bytes();
         }
+        usedBytes += entry.bytes();
+        evictOverBudget();
     }
-    
-    public static Optional<List<BlockPos>> getCachedResults(ChunkPos chunkPos, Block block) {
-        CacheKey key = new CacheKey(chunkPos, block);
-        CacheEntry entry = cache.get(key);
-        
-        if (entry != null) {
-            if (entry.isExpired()) {
-                cache.remove(key);
-                return Optional.empty();
-            }
-            return Optional.of(entry.getPositions());
+
+    private static void evictOverBudget() {
+        Iterator<CacheEntry> eldest = cache.values().iterator();
+        while (usedBytes > budgetBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().bytes();
+            eldest.remove();
+            PerformanceMonitor.incrementCounter("cache_evictions");
         }
-        
-        return Optional.empty();
     }
-    
-    public static void cacheResults(ChunkPos chunkPos, Block block, List<BlockPos> positions) {
-        CacheKey key = new CacheKey(chunkPos, block);
-        cache.put(key, new CacheEntry(positions));
+
+    public static synchronized void setBudgetBytes(long bytes) {
+        budgetBytes = Math.max(0, bytes);
+        evictOverBudget();
+    }
+
+    public static synchronized long getBudgetBytes() {
+        return budgetBytes;
     }
-    
-    public static void clearCache() {
-        cache.clear();
+
+    public static synchronized long getUsedBytes() {
+        return usedBytes;
     }
-    
-    public static void cleanExpiredEntries() {
-        cache.entrySet().removeIf(entry -> entry.getValue().isExpired());
+
+    public static synchronized void clearCache() {
+        cache.clear();
+        usedBytes = 0;
     }
-    
-    public static int getCacheSize() {
+
+    public static synchronized int getCacheSize() {
         return cache.size();
     }
 }
@@ -37,6 +37,14 @@ public class PerformanceMonitor {
         return 0;
     }
     
+    /**
+     * Record one run of an operation that was timed by the caller
+     */
+    public static void recordDuration(String operation, long nanos) {
+        durations.computeIfAbsent(operation, k -> new AtomicLong(0)).addAndGet(nanos);
+        incrementCounter(operation + "_count");
+    }
+
     /**
      * Increment a counter
      */
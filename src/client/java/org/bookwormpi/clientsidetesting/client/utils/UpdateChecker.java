@@ -6,7 +6,6 @@ import net.fabricmc.loader.api.FabricLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -21,7 +20,7 @@ public class UpdateChecker {
     private static final Logger LOGGER = LoggerFactory.getLogger("clientsidetesting-updater");
     private static final String GITHUB_API_URL = "https://api.github.com/repos/bookwormpi/ClientMods/releases/latest";
     private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
+            .connectTimeout(Duration.ofSeconds(5))
             .build();
     
     public static class UpdateInfo {
@@ -42,61 +41,59 @@ public class UpdateChecker {
     }
     
     /**
-     * Asynchronously check for updates
+     * Asynchronously check for updates. The request runs on the HTTP client's
+     * own threads, so a slow network never holds up a scan worker.
      */
     public static CompletableFuture<UpdateInfo> checkForUpdates() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String currentVersion = FabricLoader.getInstance()
-                    .getModContainer("clientsidetesting")
-                    .map(mod -> mod.getMetadata().getVersion().getFriendlyString())
-                    .orElse("unknown");
-                
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(GITHUB_API_URL))
-                    .header("Accept", "application/vnd.github.v3+json")
-                    .header("User-Agent", "ClientSideTesting-Mod")
-                    .timeout(Duration.ofSeconds(10))
-                    .GET()
-                    .build();
+        String currentVersion = FabricLoader.getInstance()
+            .getModContainer("clientsidetesting")
+            .map(mod -> mod.getMetadata().getVersion().getFriendlyString())
+            .orElse("unknown");
+        
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(GITHUB_API_URL))
+            .header("Accept", "application/vnd.github.v3+json")
+            .header("User-Agent", "ClientSideTesting-Mod")
+            .timeout(Duration.ofSeconds(5))
+            .GET()
+            .build();
+        
+        return HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .thenApply(response -> parseResponse(response, currentVersion))
+            .exceptionally(e -> {
+                LOGGER.debug("Update check failed: {}", e.getMessage());
+                return new UpdateInfo(false, currentVersion, currentVersion, "", "");
+            });
+    }
+    
+    private static UpdateInfo parseResponse(HttpResponse<String> response, String currentVersion) {
+        try {
+            if (response.statusCode() == 200) {
+                JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
+                String latestVersion = json.get("tag_name").getAsString();
+                String downloadUrl = json.getAsJsonArray("assets")
+                    .get(0).getAsJsonObject()
+                    .get("browser_download_url").getAsString();
+                String changelog = json.get("body").getAsString();
                 
-                HttpResponse<String> response = HTTP_CLIENT.send(request, 
-                    HttpResponse.BodyHandlers.ofString());
+                boolean updateAvailable = !currentVersion.equals(latestVersion) && 
+                                        !currentVersion.equals("unknown");
                 
-                if (response.statusCode() == 200) {
-                    JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
-                    String latestVersion = json.get("tag_name").getAsString();
-                    String downloadUrl = json.getAsJsonArray("assets")
-                        .get(0).getAsJsonObject()
-                        .get("browser_download_url").getAsString();
-                    String changelog = json.get("body").getAsString();
-                    
-                    boolean updateAvailable = !currentVersion.equals(latestVersion) && 
-                                            !currentVersion.equals("unknown");
-                    
-                    if (updateAvailable) {
-                        LOGGER.info("Update available: {} -> {}", currentVersion, latestVersion);
-                    } else {
-                        LOGGER.debug("Mod is up to date: {}", currentVersion);
-                    }
-                    
-                    return new UpdateInfo(updateAvailable, currentVersion, latestVersion, 
-                                        downloadUrl, changelog);
+                if (updateAvailable) {
+                    LOGGER.info("Update available: {} -> {}", currentVersion, latestVersion);
                 } else {
-                    LOGGER.warn("Failed to check for updates: HTTP {}", response.statusCode());
+                    LOGGER.debug("Mod is up to date: {}", currentVersion);
                 }
-            } catch (IOException | InterruptedException e) {
-                LOGGER.debug("Update check failed: {}", e.getMessage());
-            } catch (Exception e) {
-                LOGGER.warn("Unexpected error during update check", e);
+                
+                return new UpdateInfo(updateAvailable, currentVersion, latestVersion, 
+                                    downloadUrl, changelog);
+            } else {
+                LOGGER.warn("Failed to check for updates: HTTP {}", response.statusCode());
             }
-            
-            String currentVersion = FabricLoader.getInstance()
-                .getModContainer("clientsidetesting")
-                .map(mod -> mod.getMetadata().getVersion().getFriendlyString())
-                .orElse("unknown");
-            
-            return new UpdateInfo(false, currentVersion, currentVersion, "", "");
-        });
+        } catch (Exception e) {
+            LOGGER.warn("Unexpected error during update check", e);
+        }
+        
+        return new UpdateInfo(false, currentVersion, currentVersion, "", "");
     }
 }
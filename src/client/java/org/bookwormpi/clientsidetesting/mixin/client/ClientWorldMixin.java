@@ -0,0 +1,25 @@
+package org.bookwormpi.clientsidetesting.mixin.client;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import org.bookwormpi.clientsidetesting.client.features.BlockSearchFeature;
+import org.bookwormpi.clientsidetesting.client.utils.BlockSearchCache;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Both BlockUpdateS2CPacket and ChunkDeltaUpdateS2CPacket are applied through
+ * handleBlockUpdate, so one hook sees every server-side block change.
+ */
+@Mixin(ClientWorld.class)
+public class ClientWorldMixin {
+    @Inject(method = "handleBlockUpdate", at = @At("TAIL"))
+    private void clientsidetesting$onBlockUpdate(BlockPos pos, BlockState state, int flags, CallbackInfo ci) {
+        // Invalidate cached hits even while block search is off
+        BlockSearchCache.onBlockChanged((ClientWorld) (Object) this, pos);
+        BlockSearchFeature.onBlockChanged(pos, state);
+    }
+}